@@ -6,10 +6,12 @@ import com.google.common.geometry.S2LatLng;
 import com.microsoft.azure.kusto.data.Client;
 import com.microsoft.azure.kusto.data.ClientFactory;
 import com.microsoft.azure.kusto.data.KustoResultSetTable;
+import com.microsoft.azure.kusto.data.StreamingClient;
 import com.microsoft.azure.kusto.data.auth.ConnectionStringBuilder;
 import com.microsoft.azure.kusto.data.auth.endpoints.WellKnownKustoEndpointsData;
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.benchmark.Page;
+import de.thriemer.spatial.benchmark.PointBatch;
 import de.thriemer.spatial.framework.DataType;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
 import de.thriemer.spatial.framework.DatabaseStatisticCollector;
@@ -21,13 +23,18 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.geojson.GeoJsonWriter;
 import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.stereotype.Service;
+import org.testcontainers.containers.BindMode;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.utility.DockerImageName;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -35,6 +42,12 @@ import java.util.List;
 public class ADXVanillaDatabase extends DatabaseAbstraction {
 
     private Client adxClient;
+    private StreamingClient streamingClient;
+
+    // the bulk load writes CSV files to this folder, which is mounted into the container, and ingests them from there
+    private Path bulkLoadFolder;
+    private static final String CONTAINER_BULK_LOAD_FOLDER = "/kustodata/bulk";
+    private static final AtomicInteger BULK_FILE_COUNTER = new AtomicInteger();
 
     GeoJsonWriter geoJsonWriter = new GeoJsonWriter();
 
@@ -58,14 +71,35 @@ public class ADXVanillaDatabase extends DatabaseAbstraction {
         if (DatabaseStatisticCollector.useVolume) {
             container.setBinds(List.of(Bind.parse("adx-volume:/kusto/tmp")));
         }
+        bulkLoadFolder = Files.createTempDirectory("adx-bulk-load");
+        bulkLoadFolder.toFile().setReadable(true, false);
+        container.withFileSystemBind(bulkLoadFolder.toString(), CONTAINER_BULK_LOAD_FOLDER, BindMode.READ_ONLY);
         container.waitingFor(Wait.forLogMessage(".*Kusto.Personal start-up time.*", 1));
         container.start();
 
         ConnectionStringBuilder csb = ConnectionStringBuilder.createWithUserPrompt("http://localhost:" + container.getFirstMappedPort());
         adxClient = ClientFactory.createClient(csb);
+        streamingClient = ClientFactory.createStreamingClient(csb);
         adxClient.executeMgmt(".show database");
     }
 
+    @Override
+    public DatabaseAbstraction openSession() {
+        // stored query results are global to the database, so every session needs its own names
+        ADXVanillaDatabase session = new ADXVanillaDatabase();
+        session.container = container;
+        session.adxClient = adxClient;
+        session.streamingClient = streamingClient;
+        session.bulkLoadFolder = bulkLoadFolder;
+        session.sqrPrefix = "sqr_s" + SESSION_COUNTER.incrementAndGet() + "_";
+        return session;
+    }
+
+    @Override
+    public void closeSession() {
+        deleteCursors();
+    }
+
     @Override
     @SneakyThrows
     public boolean tableExists(String tableName) {
@@ -121,10 +155,46 @@ public class ADXVanillaDatabase extends DatabaseAbstraction {
         adxClient.execute(builder.toString());
     }
 
+    @SneakyThrows
+    @Override
+    public void persistMultiplePoints(String tableName, PointBatch batch) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(".ingest inline into table ").append(tableName).append(" <|\n");
+        for (int i = 0; i < batch.size(); i++) {
+            appendPoint(builder, batch.longitude(i), batch.latitude(i), batch.id(i), batch.someFloat(i), batch.tags(i));
+            builder.append("\n");
+        }
+        adxClient.execute(builder.toString());
+    }
+
+    // the emulator has no queued ingestion, so the points are ingested from a local file instead of inline in the command
+    @SneakyThrows
+    @Override
+    public void bulkLoad(String tableName, PointBatch batch) {
+        String fileName = tableName + "_" + BULK_FILE_COUNTER.incrementAndGet() + ".csv";
+        Path file = bulkLoadFolder.resolve(fileName);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < batch.size(); i++) {
+            appendPoint(builder, batch.longitude(i), batch.latitude(i), batch.id(i), batch.someFloat(i), batch.tags(i));
+            builder.append("\n");
+        }
+        Files.writeString(file, builder);
+        file.toFile().setReadable(true, false);
+        try {
+            adxClient.execute(".ingest into table " + tableName + " (h'" + CONTAINER_BULK_LOAD_FOLDER + "/" + fileName + "') with (format='csv')");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     private void appendDataPoint(StringBuilder builder, DataPoint dataPoint) {
-        String s2CellId = S2CellId.fromLatLng(S2LatLng.fromDegrees(dataPoint.latitude(), dataPoint.longitude())).parent(11).toToken();
-        builder.append(dataPoint.longitude()).append(",").append(dataPoint.latitude()).append(",")
-                .append(s2CellId).append(",").append(dataPoint.id()).append(",").append(dataPoint.someFloat()).append(",").append(dataPoint.tags());
+        appendPoint(builder, dataPoint.longitude(), dataPoint.latitude(), dataPoint.id(), dataPoint.someFloat(), dataPoint.tags());
+    }
+
+    private void appendPoint(StringBuilder builder, double longitude, double latitude, int id, float someFloat, String tags) {
+        String s2CellId = S2CellId.fromLatLng(S2LatLng.fromDegrees(latitude, longitude)).parent(11).toToken();
+        builder.append(longitude).append(",").append(latitude).append(",")
+                .append(s2CellId).append(",").append(id).append(",").append(someFloat).append(",").append(tags);
     }
 
     @Override
@@ -146,13 +216,15 @@ public class ADXVanillaDatabase extends DatabaseAbstraction {
 
     }
 
+    private static final AtomicInteger SESSION_COUNTER = new AtomicInteger();
+    String sqrPrefix = "sqr_";
     HashMap<String, Integer> sqrNames = new HashMap<>();
 
     @SneakyThrows
     @Override
     public Page<DataPoint> fetchArea(String tableName, Geometry shape, int page, int pageSize) {
 
-        String sqrName = "sqr_" + pageSize;
+        String sqrName = sqrPrefix + pageSize;
         if (!sqrNames.containsKey(sqrName)) {
             String geoJson = geoJsonWriter.write(shape);
             String query =
@@ -189,16 +261,28 @@ public class ADXVanillaDatabase extends DatabaseAbstraction {
     @SneakyThrows
     @Override
     public List<DataPoint> fetchArea(String tableName, Geometry shape) {
+        String query = areaQuery(tableName, shape);
+        log.debug("Executing Query: {}", query);
+        var queryResult = adxClient.executeQuery(query);
+        var result = queryResult.getPrimaryResults();
+        return mapQueryResult(result);
+    }
+
+    @SneakyThrows
+    @Override
+    public void streamArea(String tableName, Geometry shape, Consumer<DataPoint> sink) {
+        String query = areaQuery(tableName, shape);
+        log.debug("Executing streaming Query: {}", query);
+        KustoStreamingReader.readPrimaryResult(streamingClient.executeStreamingQuery(query), sink);
+    }
+
+    private String areaQuery(String tableName, Geometry shape) {
         String geoJson = geoJsonWriter.write(shape);
-        String query = """
+        return """
                 set notruncation;
                 {{tableName}}
                 | where geo_point_in_polygon(longitude,latitude, dynamic({{geojson}}))
                 """.replace("{{tableName}}", tableName).replace("{{geojson}}", geoJson);
-        log.debug("Executing Query: {}", query);
-        var queryResult = adxClient.executeQuery(query);
-        var result = queryResult.getPrimaryResults();
-        return mapQueryResult(result);
     }
 
     @Override
@@ -218,6 +302,18 @@ public class ADXVanillaDatabase extends DatabaseAbstraction {
     }
 
 
+    @SneakyThrows
+    @Override
+    public PointBatch fetchAreaBatch(String tableName, Geometry shape) {
+        var result = adxClient.executeQuery(areaQuery(tableName, shape)).getPrimaryResults();
+        PointBatch batch = new PointBatch(result.count());
+        while (result.next()) {
+            batch.add(result.getDouble("longitude"), result.getDouble("latitude"), result.getInt("point_id"),
+                    result.getFloat("some_float"), result.getString("tags"));
+        }
+        return batch;
+    }
+
     private List<DataPoint> mapQueryResult(KustoResultSetTable mainResult) {
         List<DataPoint> resultList = new ArrayList<>(mainResult.count());
         while (mainResult.next()) {
@@ -2,31 +2,61 @@ package de.thriemer.spatial;
 
 import com.aerospike.client.Record;
 import com.aerospike.client.*;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.async.EventPolicy;
+import com.aerospike.client.async.NioEventLoops;
 import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.client.listener.BatchOperateListListener;
 import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.CommitLevel;
 import com.aerospike.client.policy.Policy;
 import com.aerospike.client.policy.QueryPolicy;
 import com.aerospike.client.query.*;
 import com.github.dockerjava.api.model.Bind;
+import com.google.common.geometry.*;
+import com.sun.management.OperatingSystemMXBean;
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.benchmark.Page;
+import de.thriemer.spatial.benchmark.PointBatch;
 import de.thriemer.spatial.framework.DataType;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
 import de.thriemer.spatial.framework.DatabaseStatisticCollector;
+import de.thriemer.spatial.framework.Settings;
 import io.vavr.Tuple2;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.densify.Densifier;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.io.geojson.GeoJsonReader;
 import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Service
 @Slf4j
@@ -43,11 +73,79 @@ public class AerospikeDatabase extends DatabaseAbstraction {
 
     IAerospikeClient client;
     ClientPolicy clientPolicy;
+    EventLoops eventLoops;
+
+    private static final int BULK_BATCH_SIZE = 1_000;
     String namespace = "default";
 
+    public enum Layout {
+        // only the GeoJSON bin, every point is written and read through JTS and GeoJSON
+        GEOJSON,
+        // lon and lat as double bins next to the GeoJSON bin of the geo index, the reads only request the primitive bins
+        PRIMITIVE,
+        // like primitive, but the tags aren't read
+        PRIMITIVE_WITHOUT_TAGS
+    }
+
+    public enum IndexMode {
+        // GEO2DSPHERE index on the GeoJSON bin, queried with geoWithinRegion
+        GEO,
+        // numeric index on the S2 leaf cell id of every point, a shape is queried as the id ranges of its covering cells and refined with JTS
+        S2
+    }
+
+    // the covering cells of a shape in the S2 mode, every cell is one range query
+    private static final int S2_MAX_CELLS = 16;
+    // the longest edge of a shape in the S2 mode, see covering
+    private static final double S2_MAX_EDGE_DEGREES = 0.01;
+
+    public static final String CPU_PER_RECORD = "Client CPU time per record";
+    public static final String RECORD_SIZE = "Record size on the wire";
+    // the size of every 64th record is estimated, so the estimation doesn't show up in the CPU time
+    private static final int SIZE_SAMPLE_INTERVAL = 64;
+
+    private static final OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    // the stream UDF which counts the points and computes their bounding box on the server nodes
+    private static final String UDF_RESOURCE = "aerospike/spatial_aggregates.lua";
+    private static final String UDF_PACKAGE = "spatial_aggregates";
+
+    // the points a query thread hands to the consuming thread at once
+    private static final int CHUNK_SIZE = 1_024;
+    // marks the end of one query in the queue
+    private static final List<DataPoint> END_OF_QUERY = new ArrayList<>(0);
+
+    Layout layout = Layout.GEOJSON;
+    IndexMode indexMode = IndexMode.GEO;
+    // 0 runs one query over all partitions, otherwise the partitions are split between this many threads
+    int queryThreads;
+    int maxConcurrentNodes;
+    int recordQueueSize = 5_000;
+
+    @Autowired
+    public void setSettings(Settings settings) {
+        layout = Layout.valueOf(settings.aerospikeLayout().replace('-', '_').toUpperCase(Locale.ROOT));
+        indexMode = IndexMode.valueOf(settings.aerospikeIndex().toUpperCase(Locale.ROOT));
+        queryThreads = settings.aerospikeQueryThreads();
+        maxConcurrentNodes = settings.aerospikeMaxConcurrentNodes();
+        recordQueueSize = settings.aerospikeRecordQueueSize();
+        pageCacheBytes = settings.aerospikePageCacheSize() << 20;
+        pageCache = new PageCache(pageCacheBytes);
+    }
+
     @Override
     public String getName() {
-        return "Aerospike";
+        StringBuilder name = new StringBuilder("Aerospike");
+        if (layout != Layout.GEOJSON) {
+            name.append(" ").append(layout.name().replace('_', ' ').toLowerCase(Locale.ROOT));
+        }
+        if (indexMode == IndexMode.S2) {
+            name.append(" s2");
+        }
+        if (queryThreads > 0) {
+            name.append(" parallel ").append(queryThreads);
+        }
+        return name.toString();
     }
 
     @Override
@@ -64,15 +162,49 @@ public class AerospikeDatabase extends DatabaseAbstraction {
                 .withEnv("MEM_GB", "128")
                 .addExposedPort(3000);
         if (DatabaseStatisticCollector.useVolume) {
-            container.setBinds(List.of(Bind.parse("aerospike-volume:/opt/aerospike/data")));
+            container.setBinds(List.of(Bind.parse(getVolume() + ":/opt/aerospike/data")));
         }
         container.waitingFor(Wait.forLogMessage(".*heartbeat-received.*", 1));
         container.start();
 
-        client = new AerospikeClient("127.0.0.1", container.getFirstMappedPort());
         clientPolicy = new ClientPolicy();
         clientPolicy.writePolicyDefault.expiration = -1;
         clientPolicy.writePolicyDefault.commitLevel = CommitLevel.COMMIT_ALL;
+        // the event loops are used by the bulk load, commands above the limit are queued instead of failing
+        // because all async connections of the node are in use. The async limit defaults to -1, which means maxConnsPerNode
+        int loops = Runtime.getRuntime().availableProcessors();
+        int asyncConns = clientPolicy.asyncMaxConnsPerNode < 0 ? clientPolicy.maxConnsPerNode : clientPolicy.asyncMaxConnsPerNode;
+        EventPolicy eventPolicy = new EventPolicy();
+        eventPolicy.maxCommandsInProcess = Math.max(1, asyncConns / loops);
+        eventLoops = new NioEventLoops(eventPolicy, loops);
+        clientPolicy.eventLoops = eventLoops;
+        client = new AerospikeClient(clientPolicy, new Host("127.0.0.1", container.getFirstMappedPort()));
+        client.register(null, getClass().getClassLoader(), UDF_RESOURCE, UDF_PACKAGE + ".lua", Language.LUA).waitTillComplete();
+    }
+
+    @Override
+    public void cleanUp() {
+        super.cleanUp();
+        client.close();
+        eventLoops.close();
+    }
+
+    @Override
+    public DatabaseAbstraction openSession() {
+        // the aerospike client is thread safe and manages its own connection pool
+        AerospikeDatabase session = new AerospikeDatabase();
+        session.container = container;
+        session.client = client;
+        session.clientPolicy = clientPolicy;
+        session.eventLoops = eventLoops;
+        session.layout = layout;
+        session.indexMode = indexMode;
+        session.queryThreads = queryThreads;
+        session.maxConcurrentNodes = maxConcurrentNodes;
+        session.recordQueueSize = recordQueueSize;
+        session.pageCacheBytes = pageCacheBytes;
+        session.pageCache = new PageCache(pageCacheBytes);
+        return session;
     }
 
     @Override
@@ -96,39 +228,30 @@ public class AerospikeDatabase extends DatabaseAbstraction {
 
     @Override
     public Envelope getDataBoundingBox(String table, String column) {
-        // Aerospike has no GIS capabilities so the accumulation has to be written in java
-        log.warn("Aerospike has no aggregate function so to get the bounding box a table scan is necessary");
-        log.warn("Therefore hardcoded values are used. This will only work for OSM turkey");
-
-        return DatabaseStatisticCollector.fastLane ? new Envelope(9.3977818, 9.6803433, 46.8232622, 47.5258072) : new Envelope(18.3577395, 45.1481355, 31.21, 46.345246800000005);
+        Map<?, ?> summary = countAndBounds(table, null, null);
+        if (count(summary) == 0) {
+            return new Envelope();
+        }
+        return new Envelope(((Number) summary.get("min_lon")).doubleValue(), ((Number) summary.get("max_lon")).doubleValue(),
+                ((Number) summary.get("min_lat")).doubleValue(), ((Number) summary.get("max_lat")).doubleValue());
+    }
 
-        /*
+    // the count and bounding box of the records matching the filter, only the summaries of the nodes are sent to the client
+    private Map<?, ?> countAndBounds(String tableName, Filter filter, Expression exp) {
         Statement stmt = new Statement();
         stmt.setNamespace(namespace);
-        stmt.setSetName(table);
-        stmt.setMaxRecords(1000);
-        PartitionFilter pFilter = PartitionFilter.all();
+        stmt.setSetName(tableName);
+        stmt.setFilter(filter);
+        stmt.setAggregateFunction(getClass().getClassLoader(), UDF_RESOURCE, UDF_PACKAGE, "count_and_bounds");
         QueryPolicy queryPolicy = new QueryPolicy(clientPolicy.queryPolicyDefault);
-        AtomicReference<Double> minX = new AtomicReference<>(Double.MAX_VALUE);
-        AtomicReference<Double> maxX = new AtomicReference<>(-Double.MAX_VALUE);
-        AtomicReference<Double> minY = new AtomicReference<>(Double.MAX_VALUE);
-        AtomicReference<Double> maxY = new AtomicReference<>(-Double.MAX_VALUE);
-        while (!pFilter.isDone()) {
-            RecordSet rs = client.queryPartitions(queryPolicy, stmt, pFilter);
-            rs.forEach(r -> {
-                try {
-                    Point point = (Point) reader.read(new StringReader(r.record.getGeoJSONString("pos")));
-                    minX.set(Math.min(minX.get(), point.getX()));
-                    maxX.set(Math.max(maxX.get(), point.getX()));
-                    minY.set(Math.min(minY.get(), point.getY()));
-                    maxY.set(Math.max(maxY.get(), point.getY()));
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            });
+        queryPolicy.filterExp = exp;
+        try (ResultSet rs = client.queryAggregate(queryPolicy, stmt)) {
+            return rs.next() ? (Map<?, ?>) rs.getObject() : Map.of();
         }
-        return new RectangleImpl(minX.get(), maxX.get(), minY.get(), maxY.get(), SpatialContext.GEO);
-         */
+    }
+
+    private static int count(Map<?, ?> summary) {
+        return summary.get("count") instanceof Number count ? count.intValue() : 0;
     }
 
     @Override
@@ -137,6 +260,41 @@ public class AerospikeDatabase extends DatabaseAbstraction {
         client.operate(clientPolicy.batchPolicyDefault, records);
     }
 
+    // the batch is split into smaller batches which are executed at the same time on the event loops
+    @Override
+    @SneakyThrows
+    public void bulkLoad(String tableName, PointBatch batch) {
+        int batches = (batch.size() + BULK_BATCH_SIZE - 1) / BULK_BATCH_SIZE;
+        CountDownLatch done = new CountDownLatch(batches);
+        AtomicReference<AerospikeException> failure = new AtomicReference<>();
+        for (int start = 0; start < batch.size(); start += BULK_BATCH_SIZE) {
+            List<BatchRecord> records = new ArrayList<>(BULK_BATCH_SIZE);
+            for (int i = start; i < Math.min(start + BULK_BATCH_SIZE, batch.size()); i++) {
+                records.add(convertToBatchWrite(tableName, batch.get(i)));
+            }
+            client.operate(eventLoops.next(), new BatchOperateListListener() {
+                @Override
+                public void onSuccess(List<BatchRecord> records, boolean status) {
+                    if (!status) {
+                        records.stream().filter(r -> r.resultCode != ResultCode.OK).findFirst()
+                                .ifPresent(r -> failure.compareAndSet(null, new AerospikeException(r.resultCode)));
+                    }
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(AerospikeException exception) {
+                    failure.compareAndSet(null, exception);
+                    done.countDown();
+                }
+            }, clientPolicy.batchPolicyDefault, records);
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
     BatchRecord convertToBatchWrite(String tableName, DataPoint dataPoint) {
         Key k = new Key(namespace, tableName, dataPoint.id());
         var ops = Arrays.stream(mapToBins(dataPoint)).map(Operation::put).toArray(Operation[]::new);
@@ -149,69 +307,222 @@ public class AerospikeDatabase extends DatabaseAbstraction {
         log.info("creating index: {}", indexName);
         Policy p = new Policy();
         p.setTimeout(0);
-        var task = client.createIndex(p, namespace, tableName, indexName, params[0], IndexType.GEO2DSPHERE);
+        // the S2 mode indexes the cell id that was written next to the position
+        var task = indexMode == IndexMode.S2
+                ? client.createIndex(p, namespace, tableName, tableName + "_s2_cell_idx", "s2_cell", IndexType.NUMERIC)
+                : client.createIndex(p, namespace, tableName, indexName, params[0], IndexType.GEO2DSPHERE);
         task.waitTillComplete();
     }
 
-    record Cursor(Statement stmt, PartitionFilter pf, int maxElements) {
+    record QueryKey(String table, int shapeHash, int pageSize) {
     }
 
-    Map<String, Cursor> cursors = new HashMap<>();
-    Map<Integer, Page<DataPoint>> pageCache = new HashMap<>();
+    record PageKey(QueryKey query, int page) {
+    }
+
+    // where a page starts: the covering cell in the S2 mode, always 0 for the geo index, and the partitions left in it
+    record Position(int cell, PartitionFilter partitions) {
+    }
+
+    // the least recently used pages and partition filter checkpoints of all paginated queries, bounded by their estimated size in bytes
+    static final class PageCache {
+        // a DataPoint with its list slot, the tags are added on top
+        private static final int POINT_BYTES = 64;
+
+        private record Entry(Object value, long bytes) {
+        }
+
+        private final long maxBytes;
+        private long bytes;
+        private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        PageCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @SuppressWarnings("unchecked")
+        Page<DataPoint> page(PageKey key) {
+            Entry entry = entries.get(key);
+            return entry == null ? null : (Page<DataPoint>) entry.value();
+        }
+
+        void putPage(PageKey key, Page<DataPoint> page) {
+            long pageBytes = 0;
+            for (DataPoint point : page.data) {
+                pageBytes += POINT_BYTES + (point.tags() == null ? 0 : point.tags().length());
+            }
+            put(key, page, pageBytes);
+        }
+
+        // the position before the page, every call returns a new copy of the partition filter
+        @SneakyThrows
+        Position checkpoint(PageKey key) {
+            Entry entry = entries.get(new Checkpoint(key));
+            if (entry == null) {
+                return null;
+            }
+            try (var in = new ObjectInputStream(new ByteArrayInputStream((byte[]) entry.value()))) {
+                return new Position(in.readInt(), (PartitionFilter) in.readObject());
+            }
+        }
+
+        @SneakyThrows
+        void putCheckpoint(PageKey key, Position position) {
+            var out = new ByteArrayOutputStream();
+            try (var objects = new ObjectOutputStream(out)) {
+                objects.writeInt(position.cell());
+                objects.writeObject(position.partitions());
+            }
+            put(new Checkpoint(key), out.toByteArray(), out.size());
+        }
+
+        private void put(Object key, Object value, long valueBytes) {
+            Entry previous = entries.put(key, new Entry(value, valueBytes));
+            bytes += valueBytes - (previous == null ? 0 : previous.bytes());
+            var eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().bytes();
+                eldest.remove();
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        private record Checkpoint(PageKey page) {
+        }
+    }
+
+    long pageCacheBytes = 256L << 20;
+    PageCache pageCache = new PageCache(pageCacheBytes);
+    Map<QueryKey, Integer> elementCounts = new HashMap<>();
 
     @Override
     public Page<DataPoint> fetchArea(String tableName, Geometry shape, int page, int pageSize) {
-        String cursorName = tableName + pageSize;
-        if (pageCache.containsKey(page)) {
-            return pageCache.get(page);
-        }
-        Cursor cursor;
-        if (!cursors.containsKey(cursorName)) {
-            Filter f = Filter.geoWithinRegion("pos",geoJsonWriter.write(shape));
-            Statement countStatement = new Statement();
-            countStatement.setNamespace(namespace);
-            countStatement.setSetName(tableName);
-            countStatement.setFilter(f);
-            var aggregateResult = client.query(clientPolicy.queryPolicyDefault, countStatement);
-            AtomicInteger elementCount = new AtomicInteger();
-            aggregateResult.forEach(o -> elementCount.getAndIncrement());
-
-            Statement stmt = new Statement();
-            stmt.setNamespace(namespace);
-            stmt.setSetName(tableName);
-            stmt.setMaxRecords(pageSize);
-            stmt.setFilter(f);
-            PartitionFilter pFilter = PartitionFilter.all();
-
-            cursor = new Cursor(stmt, pFilter, elementCount.get());
-            cursors.put(cursorName, cursor);
+        QueryKey query = new QueryKey(tableName, Arrays.hashCode(shape.getCoordinates()), pageSize);
+        var cached = pageCache.page(new PageKey(query, page));
+        if (cached != null) {
+            return cached;
+        }
+        Filter[] filters;
+        Expression exp = null;
+        if (indexMode == IndexMode.GEO) {
+            filters = new Filter[]{Filter.geoWithinRegion("pos", geoJsonWriter.write(shape))};
         } else {
-            cursor = cursors.get(cursorName);
+            // a page has to contain exactly the points of the shape, so the covering cells are filtered on the server
+            // with the same densified shape the covering was computed from
+            Geometry densified = densify(shape);
+            filters = covering(densified, S2_MAX_CELLS).cellIds().stream()
+                    .map(cell -> Filter.range("s2_cell", cell.rangeMin().id(), cell.rangeMax().id())).toArray(Filter[]::new);
+            exp = Exp.build(Exp.geoCompare(Exp.geoBin("pos"), Exp.geo(geoJsonWriter.write(densified))));
         }
-
-        int maxCachedPage = pageCache.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
-        int maxPage = cursor.maxElements() / pageSize;
+        Expression filterExp = exp;
+        // the covering cells don't overlap, so the counts of the cells add up to the count of the shape
+        int maxPage = elementCounts.computeIfAbsent(query, q -> Arrays.stream(filters).mapToInt(f -> count(countAndBounds(tableName, f, filterExp))).sum()) / pageSize;
         if (page > maxPage) {
             return new Page<>(page, maxPage, new ArrayList<>());
         }
-        while (maxCachedPage <= page) {
+
+        // the pages before a random page are read from the closest checkpoint on, which is at least the start of page 0
+        int first = page;
+        Position position = null;
+        while (first > 0 && (position = pageCache.checkpoint(new PageKey(query, first))) == null) {
+            first--;
+        }
+        if (position == null) {
+            position = new Position(0, PartitionFilter.all());
+        }
+        int cell = position.cell();
+        PartitionFilter pFilter = position.partitions();
+        Statement stmt = new Statement();
+        stmt.setNamespace(namespace);
+        stmt.setSetName(tableName);
+        stmt.setBinNames(readBinNames());
+        QueryPolicy queryPolicy = new QueryPolicy(clientPolicy.queryPolicyDefault);
+        queryPolicy.filterExp = exp;
+
+        Page<DataPoint> result = null;
+        for (int p = first; p <= page; p++) {
             List<DataPoint> results = new ArrayList<>(pageSize);
-            if (!cursor.pf().isDone()) {   // until no more results to process
-                QueryPolicy queryPolicy = new QueryPolicy(clientPolicy.queryPolicyDefault);
-                RecordSet rs = client.queryPartitions(queryPolicy, cursor.stmt(), cursor.pf());
-                rs.forEach(r -> results.add(mapToPoint(r.record)));
-            } else {
-                cursors.remove(cursorName);
+            // a page is continued in the next cell once all partitions of a cell are read
+            while (results.size() < pageSize && cell < filters.length) {
+                if (pFilter.isDone()) {
+                    cell++;
+                    pFilter = PartitionFilter.all();
+                    continue;
+                }
+                stmt.setFilter(filters[cell]);
+                stmt.setMaxRecords(pageSize - results.size());
+                try (RecordSet rs = client.queryPartitions(queryPolicy, stmt, pFilter)) {
+                    rs.forEach(r -> results.add(mapToPoint(r.record)));
+                }
+            }
+            result = new Page<>(p, maxPage, results);
+            pageCache.putPage(new PageKey(query, p), result);
+            pageCache.putCheckpoint(new PageKey(query, p + 1), new Position(cell, pFilter));
+        }
+        return result;
+    }
+
+    // the edges of an S2 loop and of a GeoJSON polygon in the GEO2DSPHERE index are geodesics, while JTS and PostGIS connect
+    // the vertices with straight lines in degrees. Both are far apart for long edges, e.g. the edge of a pagination rectangle
+    // along a parallel, so the shapes are split into edges of at most S2_MAX_EDGE_DEGREES, where they differ by centimeters.
+    private static Geometry densify(Geometry shape) {
+        return Densifier.densify(shape, S2_MAX_EDGE_DEGREES);
+    }
+
+    // polygons without holes are covered by their loop, everything else by its bounding rectangle. The shape has to be densified
+    // before, otherwise the loop misses the points between its geodesic edges and the straight edges of the shape.
+    private static S2CellUnion covering(Geometry shape, int maxCells) {
+        S2RegionCoverer coverer = S2RegionCoverer.builder().setMaxCells(maxCells).build();
+        if (shape instanceof Polygon polygon && polygon.getNumInteriorRing() == 0) {
+            Coordinate[] ring = polygon.getExteriorRing().getCoordinates();
+            List<S2Point> points = new ArrayList<>(ring.length - 1);
+            for (int i = 0; i < ring.length - 1; i++) {
+                points.add(S2LatLng.fromDegrees(ring[i].getY(), ring[i].getX()).toPoint());
+            }
+            if (S2Loop.isValid(points)) {
+                S2Loop loop = new S2Loop(points);
+                // a loop is the area on its left, a clockwise ring would cover the rest of the sphere
+                loop.normalize();
+                return coverer.getCovering(loop);
             }
-            pageCache.put(++maxCachedPage, new Page<>(page, cursor.maxElements() / pageSize, results));
         }
-        return pageCache.get(page);
+        Envelope envelope = shape.getEnvelopeInternal();
+        return coverer.getCovering(new S2LatLngRect(S2LatLng.fromDegrees(envelope.getMinY(), envelope.getMinX()), S2LatLng.fromDegrees(envelope.getMaxY(), envelope.getMaxX())));
     }
 
     @SneakyThrows
     DataPoint mapToPoint(Record r) {
-        Point point = (Point) geoJsonReader.read(r.getGeoJSONString("pos"));
-        return new DataPoint(point.getX(), point.getY(), r.getInt("id"), r.getFloat("some_float"), r.getString("tags"));
+        if (layout == Layout.GEOJSON) {
+            Point point = (Point) geoJsonReader.read(r.getGeoJSONString("pos"));
+            return new DataPoint(point.getX(), point.getY(), r.getInt("id"), r.getFloat("some_float"), r.getString("tags"));
+        }
+        return new DataPoint(r.getDouble("lon"), r.getDouble("lat"), r.getInt("id"), r.getFloat("some_float"), r.getString("tags"));
+    }
+
+    // null reads all bins
+    private String[] readBinNames() {
+        return switch (layout) {
+            case GEOJSON -> null;
+            case PRIMITIVE -> new String[]{"lon", "lat", "id", "some_float", "tags"};
+            case PRIMITIVE_WITHOUT_TAGS -> new String[]{"lon", "lat", "id", "some_float"};
+        };
+    }
+
+    // the bins of a record on the wire: an 8 byte operation header, the bin name and the value
+    private static int estimateWireSize(Record r) {
+        int size = 0;
+        for (var bin : r.bins.entrySet()) {
+            size += 8 + bin.getKey().length() + Value.get(bin.getValue()).estimateSize();
+        }
+        return size;
     }
 
     @Override
@@ -232,21 +543,146 @@ public class AerospikeDatabase extends DatabaseAbstraction {
 
     @Override
     public void deleteCursors() {
-        cursors.clear();
+        elementCounts.clear();
         pageCache.clear();
     }
 
+    @Override
+    public void streamArea(String tableName, Geometry shape, Consumer<DataPoint> sink) {
+        fetch(tableName, shape, Exp.val(true), sink);
+    }
+
     List<DataPoint> fetch(String tableName, Geometry shape, Exp exp) {
+        List<DataPoint> results = new ArrayList<>();
+        fetch(tableName, shape, exp, results::add);
+        return results;
+    }
+
+    @SneakyThrows
+    void fetch(String tableName, Geometry shape, Exp exp, Consumer<DataPoint> sink) {
+        QueryPolicy queryPolicy = new QueryPolicy(clientPolicy.queryPolicyDefault);
+        queryPolicy.filterExp = Exp.build(exp);
+        queryPolicy.maxConcurrentNodes = maxConcurrentNodes;
+        queryPolicy.recordQueueSize = recordQueueSize;
+        String region = geoJsonWriter.write(shape);
+        // the CPU time of the whole process, the records are parsed by the query threads of the client
+        long cpu = os.getProcessCpuTime();
+        AtomicLong sampledBytes = new AtomicLong();
+        AtomicLong sampledRecords = new AtomicLong();
+        long records;
+        if (indexMode == IndexMode.S2) {
+            records = fetchCells(tableName, shape, queryPolicy, sink, sampledBytes, sampledRecords);
+        } else if (queryThreads == 0) {
+            // the record set is filled by the query threads while it is consumed here
+            records = readRecords(client.query(queryPolicy, areaStatement(tableName, Filter.geoWithinRegion("pos", region))), sink, sampledBytes, sampledRecords);
+        } else {
+            List<Callable<RecordSet>> queries = new ArrayList<>(queryThreads);
+            for (int thread = 0; thread < queryThreads; thread++) {
+                int begin = thread * Node.PARTITIONS / queryThreads;
+                int count = (thread + 1) * Node.PARTITIONS / queryThreads - begin;
+                queries.add(() -> client.queryPartitions(queryPolicy, areaStatement(tableName, Filter.geoWithinRegion("pos", region)), PartitionFilter.range(begin, count)));
+            }
+            records = fetchParallel(queries, queryThreads, p -> true, sink, sampledBytes, sampledRecords);
+        }
+        if (records > 0) {
+            timing(CPU_PER_RECORD).record((os.getProcessCpuTime() - cpu) / records);
+            recordSize(RECORD_SIZE, sampledBytes.get() / (double) sampledRecords.get());
+        }
+    }
+
+    // the id ranges of the covering cells are queried at the same time, the points outside of the shape are removed by the prepared geometry
+    private long fetchCells(String tableName, Geometry shape, QueryPolicy queryPolicy, Consumer<DataPoint> sink, AtomicLong sampledBytes, AtomicLong sampledRecords) throws Exception {
+        List<Callable<RecordSet>> queries = new ArrayList<>(S2_MAX_CELLS);
+        for (S2CellId cell : covering(densify(shape), S2_MAX_CELLS).cellIds()) {
+            Filter range = Filter.range("s2_cell", cell.rangeMin().id(), cell.rangeMax().id());
+            queries.add(() -> client.query(queryPolicy, areaStatement(tableName, range)));
+        }
+        PreparedGeometry prepared = PreparedGeometryFactory.prepare(shape);
+        return fetchParallel(queries, queryThreads > 0 ? queryThreads : queries.size(),
+                p -> prepared.covers(factory.createPoint(new Coordinate(p.longitude(), p.latitude()))), sink, sampledBytes, sampledRecords);
+    }
+
+    // every query is read and mapped by a thread of the pool, only the points that are kept are passed to the sink on the calling thread
+    private long fetchParallel(List<Callable<RecordSet>> queries, int threads, Predicate<DataPoint> keep, Consumer<DataPoint> sink, AtomicLong sampledBytes, AtomicLong sampledRecords) throws Exception {
+        BlockingQueue<List<DataPoint>> chunks = new ArrayBlockingQueue<>(2 * threads);
+        List<Future<Long>> workers = new ArrayList<>(queries.size());
+        long records = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (var query : queries) {
+                workers.add(executor.submit(() -> {
+                    List<DataPoint> chunk = new ArrayList<>(CHUNK_SIZE);
+                    try {
+                        return readRecords(query.call(), p -> {
+                            if (!keep.test(p)) {
+                                return;
+                            }
+                            chunk.add(p);
+                            if (chunk.size() == CHUNK_SIZE) {
+                                putChunk(chunks, new ArrayList<>(chunk));
+                                chunk.clear();
+                            }
+                        }, sampledBytes, sampledRecords);
+                    } finally {
+                        if (!chunk.isEmpty()) {
+                            chunks.put(chunk);
+                        }
+                        chunks.put(END_OF_QUERY);
+                    }
+                }));
+            }
+            int runningWorkers = queries.size();
+            while (runningWorkers > 0) {
+                var chunk = chunks.take();
+                if (chunk == END_OF_QUERY) {
+                    runningWorkers--;
+                } else {
+                    chunk.forEach(sink);
+                }
+            }
+            // rethrows the exception of a failed worker
+            for (var worker : workers) {
+                records += worker.get();
+            }
+        } finally {
+            // if the sink failed, the workers are blocked in put, so they are interrupted and their chunks are dropped
+            executor.shutdownNow();
+            while (!executor.awaitTermination(10, TimeUnit.MILLISECONDS)) {
+                chunks.clear();
+            }
+        }
+        return records;
+    }
+
+    @SneakyThrows
+    private static void putChunk(BlockingQueue<List<DataPoint>> chunks, List<DataPoint> chunk) {
+        chunks.put(chunk);
+    }
+
+    private Statement areaStatement(String tableName, Filter filter) {
         Statement stmt = new Statement();
         stmt.setNamespace(namespace);
         stmt.setSetName(tableName);
-        stmt.setFilter(Filter.geoWithinRegion("pos", geoJsonWriter.write(shape)));
-        QueryPolicy queryPolicy = new QueryPolicy(clientPolicy.queryPolicyDefault);
-        queryPolicy.filterExp = Exp.build(exp);
-        RecordSet rs = client.query(queryPolicy, stmt);
-        List<DataPoint> results = new ArrayList<>();
-        rs.forEach(r -> results.add(mapToPoint(r.record)));
-        return results;
+        stmt.setFilter(filter);
+        stmt.setBinNames(readBinNames());
+        return stmt;
+    }
+
+    // the size of every SIZE_SAMPLE_INTERVAL-th record is added to sampledBytes
+    private long readRecords(RecordSet recordSet, Consumer<DataPoint> sink, AtomicLong sampledBytes, AtomicLong sampledRecords) {
+        long records = 0;
+        try (RecordSet rs = recordSet) {
+            while (rs.next()) {
+                Record record = rs.getRecord();
+                if (records % SIZE_SAMPLE_INTERVAL == 0) {
+                    sampledBytes.addAndGet(estimateWireSize(record));
+                    sampledRecords.incrementAndGet();
+                }
+                sink.accept(mapToPoint(record));
+                records++;
+            }
+        }
+        return records;
     }
 
     @Override
@@ -258,21 +694,43 @@ public class AerospikeDatabase extends DatabaseAbstraction {
 
     @Override
     public int count(String tableName) {
-        AtomicInteger count = new AtomicInteger(0);
-        client.scanAll(clientPolicy.scanPolicyDefault, namespace, tableName, (k, r) -> count.incrementAndGet());
-        return count.get();
+        return count(countAndBounds(tableName, null, null));
     }
 
     @Override
     public String getVolume() {
-        return "aerospike-volume";
+        // the records are only loaded once per volume and the layouts and index modes write different bins
+        StringBuilder volume = new StringBuilder("aerospike");
+        if (layout != Layout.GEOJSON) {
+            volume.append("-primitive");
+        }
+        if (indexMode == IndexMode.S2) {
+            volume.append("-s2");
+        }
+        return volume.append("-volume").toString();
     }
 
     GeometryFactory factory = new GeometryFactory();
 
     private Bin[] mapToBins(DataPoint dataPoint) {
-        Geometry point = factory.createPoint(new Coordinate(dataPoint.longitude(), dataPoint.latitude()));
-        return new Bin[]{new Bin("pos", Value.getAsGeoJSON(geoJsonWriter.write(point))), new Bin("id", dataPoint.id()), new Bin("some_float", dataPoint.someFloat()), new Bin("tags", dataPoint.tags())};
+        List<Bin> bins = new ArrayList<>(7);
+        if (layout == Layout.GEOJSON) {
+            Geometry point = factory.createPoint(new Coordinate(dataPoint.longitude(), dataPoint.latitude()));
+            bins.add(new Bin("pos", Value.getAsGeoJSON(geoJsonWriter.write(point))));
+        } else {
+            // the GeoJSON of a point is written directly, it is only needed by the geo index and the filter expressions
+            String geoJson = "{\"type\":\"Point\",\"coordinates\":[" + dataPoint.longitude() + "," + dataPoint.latitude() + "]}";
+            bins.add(new Bin("pos", Value.getAsGeoJSON(geoJson)));
+            bins.add(new Bin("lon", dataPoint.longitude()));
+            bins.add(new Bin("lat", dataPoint.latitude()));
+        }
+        bins.add(new Bin("id", dataPoint.id()));
+        bins.add(new Bin("some_float", dataPoint.someFloat()));
+        bins.add(new Bin("tags", dataPoint.tags()));
+        if (indexMode == IndexMode.S2) {
+            bins.add(new Bin("s2_cell", S2CellId.fromLatLng(S2LatLng.fromDegrees(dataPoint.latitude(), dataPoint.longitude())).id()));
+        }
+        return bins.toArray(Bin[]::new);
     }
 
 }
@@ -0,0 +1,121 @@
+package de.thriemer.spatial;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.thriemer.spatial.benchmark.DataPoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+// Reads the frames of a v2 query response one by one, so the rows of the primary result are passed to the sink
+// while the response is still being received instead of parsing the complete response into a KustoResultSetTable
+class KustoStreamingReader {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private int longitudeColumn;
+    private int latitudeColumn;
+    private int idColumn;
+    private int someFloatColumn;
+    private int tagsColumn;
+
+    static void readPrimaryResult(InputStream stream, Consumer<DataPoint> sink) throws IOException {
+        try (stream; JsonParser parser = mapper.createParser(stream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Expected an array of frames but got " + parser.currentToken());
+            }
+            var reader = new KustoStreamingReader();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                reader.readFrame(parser, sink);
+            }
+        }
+    }
+
+    private void readFrame(JsonParser parser, Consumer<DataPoint> sink) throws IOException {
+        boolean primaryResult = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "TableKind" -> primaryResult = "PrimaryResult".equals(parser.getText());
+                case "HasErrors" -> {
+                    if (parser.getBooleanValue()) {
+                        throw new IllegalStateException("Kusto query completed with errors");
+                    }
+                }
+                // the columns are always sent before the rows
+                case "Columns" -> {
+                    if (primaryResult) {
+                        readColumns(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "Rows" -> {
+                    if (primaryResult) {
+                        readRows(parser, sink);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readColumns(JsonParser parser) throws IOException {
+        int index = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (field.equals("ColumnName")) {
+                    switch (parser.getText()) {
+                        case "longitude" -> longitudeColumn = index;
+                        case "latitude" -> latitudeColumn = index;
+                        case "point_id" -> idColumn = index;
+                        case "some_float" -> someFloatColumn = index;
+                        case "tags" -> tagsColumn = index;
+                        default -> {
+                        }
+                    }
+                }
+            }
+            index++;
+        }
+    }
+
+    private void readRows(JsonParser parser, Consumer<DataPoint> sink) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                // errors that happen while the result is streamed are sent as an object instead of a row
+                throw new IllegalStateException("Kusto query failed while streaming: " + parser.readValueAsTree());
+            }
+            double longitude = 0, latitude = 0;
+            int id = 0;
+            float someFloat = 0;
+            String tags = null;
+            int column = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (column == longitudeColumn) {
+                    longitude = parser.getValueAsDouble();
+                } else if (column == latitudeColumn) {
+                    latitude = parser.getValueAsDouble();
+                } else if (column == idColumn) {
+                    id = parser.getValueAsInt();
+                } else if (column == someFloatColumn) {
+                    someFloat = (float) parser.getValueAsDouble();
+                } else if (column == tagsColumn) {
+                    tags = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+                column++;
+            }
+            sink.accept(new DataPoint(longitude, latitude, id, someFloat, tags));
+        }
+    }
+
+}
@@ -3,10 +3,14 @@ package de.thriemer.spatial;
 import com.github.dockerjava.api.model.Bind;
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.benchmark.Page;
+import de.thriemer.spatial.benchmark.PointBatch;
+import de.thriemer.spatial.evaluation.QueryTimer;
 import de.thriemer.spatial.framework.DataType;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
 import de.thriemer.spatial.framework.DatabaseStatisticCollector;
+import de.thriemer.spatial.framework.Settings;
 import io.vavr.Tuple2;
+import jakarta.json.JsonObject;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,26 +23,44 @@ import org.apache.hc.core5.http.HttpHost;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.io.WKTWriter;
 import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.GeoLocation;
+import org.opensearch.client.opensearch._types.GeoShapeRelation;
 import org.opensearch.client.opensearch._types.SortOptions;
 import org.opensearch.client.opensearch._types.mapping.*;
+import org.opensearch.client.opensearch._types.query_dsl.FieldAndFormat;
 import org.opensearch.client.opensearch._types.query_dsl.GeoPolygonPoints;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch._types.query_dsl.RangeQuery;
 import org.opensearch.client.opensearch.core.*;
 import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.core.search.Pit;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
 import org.opensearch.client.opensearch.indices.DeleteIndexRequest;
 import org.opensearch.client.opensearch.indices.DeleteIndexResponse;
 import org.opensearch.client.opensearch.indices.ExistsRequest;
 import org.opensearch.client.transport.httpclient5.ApacheHttpClient5TransportBuilder;
 import org.opensearch.testcontainers.OpensearchContainer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -48,10 +70,81 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
     //    Opensearch => Clusters => Indices => Shards => Documents with key-weight pairs
 
     OpenSearchClient osc;
+    OpenSearchAsyncClient asyncOsc;
+
+    private static final int BULK_REQUEST_SIZE = 2_000;
+
+    public enum QueryStrategy {
+        // geo_polygon queries in scoring context
+        POLYGON,
+        // a geo_bounding_box prefilter and the geo_polygon query in filter context, the filters can be cached and aren't scored
+        FILTER,
+        // a geo_shape query with the polygon in filter context
+        SHAPE
+    }
+
+    public enum Retrieval {
+        // the whole _source, pos is parsed from WKT
+        SOURCE,
+        // pos, point_id and some_float from the doc values, only the tags are read from the _source
+        DOCVALUES,
+        // only the doc values, the tags of the points are null
+        DOCVALUES_WITHOUT_TAGS
+    }
+
+    public enum Pagination {
+        // search_after on point_id without a point in time, the count is a value_count aggregation and unseen pages are read one after another
+        SEARCH_AFTER,
+        // one point in time per query, the first search tracks the total hits and unseen pages are skipped by reading only the sort values
+        PIT
+    }
+
+    // a point is passed as primitives, so the doc values can be decoded without a DataPoint, e.g. PointBatch::add
+    interface PointSink {
+        void accept(double longitude, double latitude, int id, float someFloat, String tags);
+    }
+
+    public static final String DECODE_TIME = "Client decode time";
+    public static final String CLIENT_CPU_TIME = "Client CPU time";
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    QueryStrategy queryStrategy = QueryStrategy.POLYGON;
+    Retrieval retrieval = Retrieval.SOURCE;
+    Pagination pagination = Pagination.SEARCH_AFTER;
+    WKTWriter wktWriter = new WKTWriter();
+    // 0 pages through the results with one scroll context, otherwise the number of slices that are exported at the same time
+    int exportSlices;
+    int exportBatchSize = 10_000;
+
+    // marks the end of a slice in the export queue
+    private static final PointBatch END_OF_SLICE = new PointBatch(0);
+
+    @Autowired
+    public void setSettings(Settings settings) {
+        queryStrategy = QueryStrategy.valueOf(settings.opensearchQueryStrategy().toUpperCase(Locale.ROOT));
+        retrieval = Retrieval.valueOf(settings.opensearchRetrieval().replace('-', '_').toUpperCase(Locale.ROOT));
+        pagination = Pagination.valueOf(settings.opensearchPagination().replace('-', '_').toUpperCase(Locale.ROOT));
+        exportSlices = settings.opensearchExportSlices();
+        exportBatchSize = settings.opensearchExportBatchSize();
+    }
 
     @Override
     public String getName() {
-        return "OpenSearch";
+        StringBuilder name = new StringBuilder("OpenSearch");
+        if (queryStrategy != QueryStrategy.POLYGON) {
+            name.append(" ").append(queryStrategy.name().toLowerCase(Locale.ROOT));
+        }
+        if (retrieval != Retrieval.SOURCE) {
+            name.append(" ").append(retrieval.name().replace('_', ' ').toLowerCase(Locale.ROOT));
+        }
+        if (pagination == Pagination.PIT) {
+            name.append(" pit pagination");
+        }
+        if (exportSlices > 0) {
+            name.append(" sliced ").append(exportSlices);
+        }
+        return name.toString();
     }
 
     @Override
@@ -75,7 +168,24 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
         final ApacheHttpClient5TransportBuilder builder = ApacheHttpClient5TransportBuilder.builder(host);
         builder.setHttpClientConfigCallback(b -> b.setDefaultCredentialsProvider(credentialsProvider));
 
-        osc = new OpenSearchClient(builder.build());
+        var transport = builder.build();
+        osc = new OpenSearchClient(transport);
+        asyncOsc = new OpenSearchAsyncClient(transport);
+    }
+
+    @Override
+    public DatabaseAbstraction openSession() {
+        // the OpenSearch client is thread safe and manages its own connection pool
+        OpenSearchDatabase session = new OpenSearchDatabase();
+        session.container = container;
+        session.osc = osc;
+        session.asyncOsc = asyncOsc;
+        session.queryStrategy = queryStrategy;
+        session.retrieval = retrieval;
+        session.pagination = pagination;
+        session.exportSlices = exportSlices;
+        session.exportBatchSize = exportBatchSize;
+        return session;
     }
 
     @SneakyThrows
@@ -138,6 +248,46 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
         osc.indices().refresh(r -> r.index(tableName));
     }
 
+    @Override
+    @SneakyThrows
+    public void startBulkLoad(String tableName) {
+        // no refreshes while loading, the segments are only made searchable once at the end
+        osc.indices().putSettings(s -> s.index(tableName).settings(is -> is.refreshInterval(t -> t.time("-1"))));
+    }
+
+    // splits the batch into multiple bulk requests which are sent at the same time
+    @Override
+    @SneakyThrows
+    public void bulkLoad(String tableName, PointBatch batch) {
+        List<CompletableFuture<BulkResponse>> requests = new ArrayList<>();
+        for (int start = 0; start < batch.size(); start += BULK_REQUEST_SIZE) {
+            BulkRequest.Builder br = new BulkRequest.Builder();
+            for (int i = start; i < Math.min(start + BULK_REQUEST_SIZE, batch.size()); i++) {
+                var p = OpenSearchDataPoint.from(batch.get(i));
+                br.operations(op -> op.index(idx -> idx.index(tableName).id(p.getPoint_id() + "").document(p)));
+            }
+            requests.add(asyncOsc.bulk(br.build()));
+        }
+        for (var request : requests) {
+            var result = request.get();
+            if (result.errors()) {
+                log.error("Bulk had errors");
+                for (BulkResponseItem item : result.items()) {
+                    if (item.error() != null) {
+                        log.error(item.error().reason());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public void finishBulkLoad(String tableName) {
+        osc.indices().putSettings(s -> s.index(tableName).settings(is -> is.refreshInterval(t -> t.time("1s"))));
+        osc.indices().refresh(r -> r.index(tableName));
+    }
+
     @Override
     public void createIndex(String tableName, String... params) {
         // There are no indexes?
@@ -151,11 +301,28 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
 
     Map<Integer, Cursor> pages = new HashMap<>();
 
+    private static final class PagedQuery {
+        final String pitId;
+        // -1 until the first search returned the total hits
+        int pages = -1;
+        // the sort values of the last hit before a page, for every page whose start is known
+        final TreeMap<Integer, List<String>> pageStarts = new TreeMap<>();
+
+        PagedQuery(String pitId) {
+            this.pitId = pitId;
+            pageStarts.put(0, List.of());
+        }
+    }
+
+    Map<Integer, PagedQuery> pagedQueries = new HashMap<>();
 
     @Override
     @SneakyThrows
     public Page<DataPoint> fetchArea(String tableName, Geometry shape, int page, int pageSize) {
-        GeoPolygonPoints poly = convertToGeoPolygonPoints(shape);
+        Query query = areaQuery(List.of(), shape);
+        if (pagination == Pagination.PIT) {
+            return fetchPageWithPit(tableName, query, Objects.hash(tableName, shape, pageSize), page, pageSize);
+        }
 
         int key = Objects.hash(tableName, shape, pageSize);
         if (!pages.containsKey(key)) {
@@ -163,7 +330,7 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
             SearchRequest searchRequest = new SearchRequest.Builder()
                     .index(tableName)
                     .sort(SortOptions.of(s -> s.field(f -> f.field("point_id"))))
-                    .query(new Query.Builder().geoPolygon(p -> p.field("pos").polygon(poly)).build())
+                    .query(query)
                     .aggregations("count", a -> a.valueCount(c -> c.field("point_id")))
                     .build();
 
@@ -180,7 +347,7 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
         var maxPage = cursor.getMaxPage();
 
         if (maxPage.isEmpty()) {
-            List<DataPoint> points = fetchComplete(tableName, poly, pageSize, 0, true);
+            List<DataPoint> points = fetchComplete(tableName, query, pageSize, 0, true);
             cursor.pages.put(0, points.getLast().id());
             if (page == 0) {
                 return new Page<>(page, cursor.maxPages(), points);
@@ -189,12 +356,12 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
         // scroll to page
         for (int i = cursor.getMaxPage().get() + 1; i < page; i++) {
             int searchAfter = cursor.pages.get(i - 1);
-            List<DataPoint> points = fetchComplete(tableName, poly, pageSize, searchAfter, false);
+            List<DataPoint> points = fetchComplete(tableName, query, pageSize, searchAfter, false);
             cursor.pages.put(i, points.getLast().id());
         }
 
         int searchAfter = cursor.pages.get(page - 1);
-        List<DataPoint> points = fetchComplete(tableName, poly, pageSize, searchAfter, false);
+        List<DataPoint> points = fetchComplete(tableName, query, pageSize, searchAfter, false);
         if (!points.isEmpty()) {
             cursor.pages.put(page, points.getLast().id());
         }
@@ -203,28 +370,92 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
     }
 
     @SneakyThrows
-    private List<DataPoint> fetchComplete(String tableName, GeoPolygonPoints poly, int size, int searchAfter, boolean firstPage) {
+    private Page<DataPoint> fetchPageWithPit(String tableName, Query query, int key, int page, int pageSize) {
+        PagedQuery pagedQuery = pagedQueries.get(key);
+        if (pagedQuery == null) {
+            pagedQuery = new PagedQuery(osc.createPit(p -> p.targetIndexes(tableName).keepAlive(t -> t.time("1m"))).pitId());
+            pagedQueries.put(key, pagedQuery);
+        }
+
+        // pages that weren't read yet, e.g. by random access, are skipped by reading only the sort values of their hits
+        var knownStart = pagedQuery.pageStarts.floorEntry(page);
+        List<String> start = knownStart.getValue();
+        int hitsToSkip = (page - knownStart.getKey()) * pageSize;
+        for (int skipped = 0; skipped < hitsToSkip; ) {
+            var hits = searchPit(pagedQuery, query, start, Math.min(hitsToSkip - skipped, 10_000), pageSize, false);
+            if (hits.isEmpty()) {
+                return new Page<>(page, pagedQuery.pages, List.of());
+            }
+            for (var hit : hits) {
+                skipped++;
+                if (skipped % pageSize == 0) {
+                    pagedQuery.pageStarts.put(knownStart.getKey() + skipped / pageSize, hit.sort());
+                }
+            }
+            start = hits.getLast().sort();
+        }
+
+        List<DataPoint> points = new ArrayList<>();
+        PointSink sink = toDataPoints(points::add);
+        while (points.size() < pageSize) {
+            var hits = searchPit(pagedQuery, query, start, Math.min(pageSize - points.size(), 10_000), pageSize, true);
+            if (hits.isEmpty()) {
+                break;
+            }
+            decode(hits, sink);
+            start = hits.getLast().sort();
+        }
+        if (points.size() == pageSize) {
+            pagedQuery.pageStarts.put(page + 1, start);
+        }
+        return new Page<>(page, pagedQuery.pages, points);
+    }
+
+    private List<? extends Hit<?>> searchPit(PagedQuery pagedQuery, Query query, List<String> searchAfter, int size, int pageSize, boolean readPoints) throws IOException {
+        var builder = new SearchRequest.Builder()
+                .pit(Pit.of(p -> p.id(pagedQuery.pitId).keepAlive("1m")))
+                .query(query)
+                .size(size)
+                .sort(SortOptions.of(s -> s.field(f -> f.field("point_id"))))
+                .trackTotalHits(t -> t.enabled(pagedQuery.pages < 0));
+        if (!searchAfter.isEmpty()) {
+            builder.searchAfter(searchAfter);
+        }
+        builder = readPoints ? retrieve(builder) : builder.source(s -> s.fetch(false));
+        Class<?> documentClass = readPoints ? documentClass() : JsonData.class;
+        var hits = osc.search(builder.build(), documentClass).hits();
+        if (pagedQuery.pages < 0) {
+            pagedQuery.pages = (int) (hits.total().value() / pageSize);
+        }
+        return hits.hits();
+    }
+
+    @SneakyThrows
+    private List<DataPoint> fetchComplete(String tableName, Query query, int size, int searchAfter, boolean firstPage) {
         List<DataPoint> results = new ArrayList<>();
+        PointSink sink = toDataPoints(results::add);
+        long cpu = threads.getCurrentThreadCpuTime();
         while (size > 0) {
 
-            var builder = new SearchRequest.Builder()
+            var builder = retrieve(new SearchRequest.Builder()
                     .index(tableName)
                     .size(Math.min(size, 10_000))
                     .sort(SortOptions.of(s -> s.field(f -> f.field("point_id"))))
-                    .query(new Query.Builder().geoPolygon(p -> p.field("pos").polygon(poly)).build());
+                    .query(query));
 
             if (!firstPage) {
                 builder = builder.searchAfter("" + searchAfter);
             }
-            var result = osc.search(builder.build(), OpenSearchDataPoint.class);
-            result.hits().hits().stream().map(h -> h.source().toDataPoint()).forEach(results::add);
-            if (result.hits().hits().isEmpty()) {
+            var hits = osc.search(builder.build(), documentClass()).hits().hits();
+            decode(hits, sink);
+            if (hits.isEmpty()) {
                 break;
             }
-            size -= result.hits().hits().size();
+            size -= hits.size();
             searchAfter = results.getLast().id();
             firstPage = false;
         }
+        timing(CLIENT_CPU_TIME).record(threads.getCurrentThreadCpuTime() - cpu);
 
         return results;
     }
@@ -232,9 +463,48 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
     @Override
     @SneakyThrows
     public List<DataPoint> fetchArea(String tableName, Geometry shape) {
+        return scrollFetch(tableName, areaQuery(List.of(), shape));
+    }
+
+    @Override
+    public void streamArea(String tableName, Geometry shape, Consumer<DataPoint> sink) {
+        scrollFetch(tableName, areaQuery(List.of(), shape), toDataPoints(sink));
+    }
+
+    @Override
+    public PointBatch fetchAreaBatch(String tableName, Geometry shape) {
+        PointBatch batch = new PointBatch(1024);
+        scrollFetch(tableName, areaQuery(List.of(), shape), batch::add);
+        return batch;
+    }
+
+    // combines the conditions with the spatial queries for all shapes according to the query strategy
+    private Query areaQuery(List<Query> conditions, Geometry... shapes) {
+        List<Query> queries = new ArrayList<>(conditions);
+        for (Geometry shape : shapes) {
+            switch (queryStrategy) {
+                case POLYGON -> queries.add(geoPolygonQuery(shape));
+                case FILTER -> {
+                    Envelope envelope = shape.getEnvelopeInternal();
+                    queries.add(new Query.Builder().geoBoundingBox(g -> g.field("pos").boundingBox(b -> b.tlbr(t -> t
+                            .topLeft(l -> l.latlon(ll -> ll.lat(envelope.getMaxY()).lon(envelope.getMinX())))
+                            .bottomRight(l -> l.latlon(ll -> ll.lat(envelope.getMinY()).lon(envelope.getMaxX())))
+                    ))).build());
+                    queries.add(geoPolygonQuery(shape));
+                }
+                case SHAPE -> queries.add(new Query.Builder().geoShape(g -> g.field("pos")
+                        .shape(f -> f.shape(JsonData.of(wktWriter.write(shape))).relation(GeoShapeRelation.Intersects))).build());
+            }
+        }
+        if (queryStrategy == QueryStrategy.POLYGON) {
+            return queries.size() == 1 ? queries.getFirst() : new Query.Builder().bool(b -> b.must(queries)).build();
+        }
+        return new Query.Builder().bool(b -> b.filter(queries)).build();
+    }
+
+    private Query geoPolygonQuery(Geometry shape) {
         GeoPolygonPoints poly = convertToGeoPolygonPoints(shape);
-        var query = new Query.Builder().geoPolygon(p -> p.field("pos").polygon(poly)).build();
-        return scrollFetch(tableName, query);
+        return new Query.Builder().geoPolygon(p -> p.field("pos").polygon(poly)).build();
     }
 
     private GeoPolygonPoints convertToGeoPolygonPoints(Geometry shape) {
@@ -264,9 +534,9 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
         }
 
         @SneakyThrows
-        public DataPoint toDataPoint() {
+        public void decode(PointSink sink) {
             Geometry g = reader.read(this.pos);
-            return new DataPoint(g.getCoordinate().getX(), g.getCoordinate().getY(), this.point_id, this.some_float, this.tags);
+            sink.accept(g.getCoordinate().getX(), g.getCoordinate().getY(), this.point_id, this.some_float, this.tags);
         }
 
     }
@@ -274,62 +544,190 @@ public class OpenSearchDatabase extends DatabaseAbstraction {
     @Override
     @SneakyThrows
     public List<DataPoint> fetchArea(String tableName, Geometry contractPolygon, Geometry filter) {
-
-        GeoPolygonPoints poly = convertToGeoPolygonPoints(contractPolygon);
-        GeoPolygonPoints poly1 = convertToGeoPolygonPoints(filter);
-
-        var query = new Query.Builder().bool(b -> b.must(
-                new Query.Builder().geoPolygon(p -> p.field("pos").polygon(poly)).build(),
-                new Query.Builder().geoPolygon(p -> p.field("pos").polygon(poly1)).build()
-        )).build();
-
-        return scrollFetch(tableName, query);
+        return scrollFetch(tableName, areaQuery(List.of(), contractPolygon, filter));
     }
 
     @Override
     @SneakyThrows
     public List<DataPoint> fetchArea(String tableName, Geometry shape, String fieldName, float greaterThan) {
-        GeoPolygonPoints poly = convertToGeoPolygonPoints(shape);
-
         Query gtQuery = new RangeQuery.Builder().field(fieldName).gt(JsonData.of(greaterThan)).build().toQuery();
-        Query polyQuery = new Query.Builder().geoPolygon(gp -> gp.field("pos").polygon(poly)).build();
-        Query query = new Query.Builder().bool(b -> b.must(gtQuery, polyQuery)).build();
-        return scrollFetch(tableName, query);
+        return scrollFetch(tableName, areaQuery(List.of(gtQuery), shape));
     }
 
-    @SneakyThrows
     private List<DataPoint> scrollFetch(String tableName, Query query) {
         List<DataPoint> dataPoints = new ArrayList<>();
+        scrollFetch(tableName, query, toDataPoints(dataPoints::add));
+        return dataPoints;
+    }
 
-        var searchBuilder = new SearchRequest.Builder()
+    @SneakyThrows
+    private void scrollFetch(String tableName, Query query, PointSink sink) {
+        if (exportSlices > 0) {
+            slicedExport(tableName, query, sink);
+            return;
+        }
+        long cpu = threads.getCurrentThreadCpuTime();
+        var searchBuilder = retrieve(new SearchRequest.Builder()
                 .index(tableName)
                 .query(query)
                 .size(10_000)
-                .scroll(t -> t.time("1m"));
-        var queryResult = osc.search(searchBuilder.build(), OpenSearchDataPoint.class);
-        queryResult.hits().hits().stream().map(h -> h.source().toDataPoint()).forEach(dataPoints::add);
+                .scroll(t -> t.time("1m")));
+        var queryResult = osc.search(searchBuilder.build(), documentClass());
         String scrollId = queryResult.scrollId();
 
-        var hits = queryResult.hits().hits();
+        List<? extends Hit<?>> hits = queryResult.hits().hits();
+        decode(hits, sink);
 
         while (hits != null && !hits.isEmpty()) {
-            var result = osc.scroll(new ScrollRequest.Builder().scrollId(scrollId).scroll(t -> t.time("1m")).build(), OpenSearchDataPoint.class);
+            var result = osc.scroll(new ScrollRequest.Builder().scrollId(scrollId).scroll(t -> t.time("1m")).build(), documentClass());
             scrollId = result.scrollId();
             hits = result.hits().hits();
-            result.hits().hits().stream().map(h -> h.source().toDataPoint()).forEach(dataPoints::add);
+            decode(hits, sink);
         }
 
         if (scrollId != null) {
             osc.clearScroll(new ClearScrollRequest.Builder().scrollId(scrollId).build());
         }
+        timing(CLIENT_CPU_TIME).record(threads.getCurrentThreadCpuTime() - cpu);
+    }
 
-        return dataPoints;
+    private SearchRequest.Builder retrieve(SearchRequest.Builder builder) {
+        return switch (retrieval) {
+            case SOURCE -> builder;
+            case DOCVALUES -> builder.source(s -> s.filter(f -> f.includes("tags"))).docvalueFields(DOC_VALUE_FIELDS);
+            case DOCVALUES_WITHOUT_TAGS -> builder.source(s -> s.fetch(false)).docvalueFields(DOC_VALUE_FIELDS);
+        };
+    }
+
+    private static final List<FieldAndFormat> DOC_VALUE_FIELDS = List.of(
+            FieldAndFormat.of(f -> f.field("pos")),
+            FieldAndFormat.of(f -> f.field("point_id")),
+            FieldAndFormat.of(f -> f.field("some_float"))
+    );
+
+    // the class the _source of the hits is deserialized to, the doc values only need the tags from it
+    private Class<?> documentClass() {
+        return retrieval == Retrieval.SOURCE ? OpenSearchDataPoint.class : JsonData.class;
+    }
+
+    private void decode(List<? extends Hit<?>> hits, PointSink sink) {
+        QueryTimer decodeTime = timing(DECODE_TIME);
+        decodeTime.start();
+        for (var hit : hits) {
+            if (retrieval == Retrieval.SOURCE) {
+                ((OpenSearchDataPoint) hit.source()).decode(sink);
+            } else {
+                decodeDocValues(hit, sink);
+            }
+        }
+        decodeTime.end();
+    }
+
+    // the doc values of every field are an array, geo points are returned as lat and lon
+    private void decodeDocValues(Hit<?> hit, PointSink sink) {
+        Map<String, JsonData> fields = hit.fields();
+        JsonObject pos = fields.get("pos").toJson().asJsonArray().getJsonObject(0);
+        String tags = null;
+        if (hit.source() instanceof JsonData source) {
+            tags = source.toJson().asJsonObject().getString("tags", null);
+        }
+        sink.accept(
+                pos.getJsonNumber("lon").doubleValue(),
+                pos.getJsonNumber("lat").doubleValue(),
+                fields.get("point_id").toJson().asJsonArray().getInt(0),
+                (float) fields.get("some_float").toJson().asJsonArray().getJsonNumber(0).doubleValue(),
+                tags
+        );
+    }
+
+    private static PointSink toDataPoints(Consumer<DataPoint> sink) {
+        return (longitude, latitude, id, someFloat, tags) -> sink.accept(new DataPoint(longitude, latitude, id, someFloat, tags));
+    }
+
+    // every slice of a point in time pages with search_after on its own thread, the batches are passed to the sink on the calling thread
+    @SneakyThrows
+    private void slicedExport(String tableName, Query query, PointSink sink) {
+        long cpu = threads.getCurrentThreadCpuTime();
+        String pitId = osc.createPit(p -> p.targetIndexes(tableName).keepAlive(t -> t.time("1m"))).pitId();
+        BlockingQueue<PointBatch> batches = new ArrayBlockingQueue<>(2 * exportSlices);
+        List<Future<Long>> slices = new ArrayList<>(exportSlices);
+        // platform threads, the CPU time of virtual threads can't be measured
+        ExecutorService executor = Executors.newFixedThreadPool(exportSlices);
+        try {
+            for (int slice = 0; slice < exportSlices; slice++) {
+                int sliceId = slice;
+                slices.add(executor.submit(() -> {
+                    long sliceCpu = threads.getCurrentThreadCpuTime();
+                    try {
+                        exportSlice(pitId, query, sliceId, batches);
+                    } finally {
+                        batches.put(END_OF_SLICE);
+                    }
+                    return threads.getCurrentThreadCpuTime() - sliceCpu;
+                }));
+            }
+            int runningSlices = exportSlices;
+            while (runningSlices > 0) {
+                var batch = batches.take();
+                if (batch == END_OF_SLICE) {
+                    runningSlices--;
+                } else {
+                    for (int i = 0; i < batch.size(); i++) {
+                        sink.accept(batch.longitude(i), batch.latitude(i), batch.id(i), batch.someFloat(i), batch.tags(i));
+                    }
+                }
+            }
+            // rethrows the exception of a failed slice
+            for (var slice : slices) {
+                cpu -= slice.get();
+            }
+        } finally {
+            // if the sink failed, the slices are blocked in put, so they are interrupted and their batches are dropped
+            executor.shutdownNow();
+            while (!executor.awaitTermination(10, TimeUnit.MILLISECONDS)) {
+                batches.clear();
+            }
+            osc.deletePit(d -> d.pitId(List.of(pitId)));
+        }
+        timing(CLIENT_CPU_TIME).record(threads.getCurrentThreadCpuTime() - cpu);
+    }
+
+    private void exportSlice(String pitId, Query query, int sliceId, BlockingQueue<PointBatch> batches) throws IOException, InterruptedException {
+        List<String> searchAfter = null;
+        while (true) {
+            var builder = retrieve(new SearchRequest.Builder()
+                    .pit(Pit.of(p -> p.id(pitId).keepAlive("1m")))
+                    .query(query)
+                    .size(exportBatchSize)
+                    .sort(SortOptions.of(s -> s.field(f -> f.field("point_id")))));
+            if (exportSlices > 1) {
+                builder.slice(s -> s.id(sliceId).max(exportSlices));
+            }
+            if (searchAfter != null) {
+                builder.searchAfter(searchAfter);
+            }
+            var hits = osc.search(builder.build(), documentClass()).hits().hits();
+            if (hits.isEmpty()) {
+                return;
+            }
+            PointBatch batch = new PointBatch(hits.size());
+            decode(hits, batch::add);
+            batches.put(batch);
+            if (hits.size() < exportBatchSize) {
+                return;
+            }
+            searchAfter = hits.getLast().sort();
+        }
     }
 
     @Override
     @SneakyThrows
     public void deleteCursors() {
         pages.clear();
+        for (var pagedQuery : pagedQueries.values()) {
+            osc.deletePit(d -> d.pitId(List.of(pagedQuery.pitId)));
+        }
+        pagedQueries.clear();
     }
 
     @Override
@@ -1,28 +1,51 @@
 package de.thriemer.spatial;
 
 import com.github.dockerjava.api.model.Bind;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2RegionCoverer;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.benchmark.Page;
+import de.thriemer.spatial.benchmark.PointBatch;
+import de.thriemer.spatial.evaluation.QueryTimer;
 import de.thriemer.spatial.framework.DataType;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
 import de.thriemer.spatial.framework.DatabaseStatisticCollector;
+import de.thriemer.spatial.framework.Helper;
+import de.thriemer.spatial.framework.Settings;
 import io.vavr.Tuple2;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import net.postgis.jdbc.PGgeometry;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
 import org.locationtech.jts.io.WKTWriter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.postgresql.util.PGobject;
 import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.output.Slf4jLogConsumer;
 import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -30,13 +53,115 @@ import java.util.*;
 public class PostGisDatabase extends DatabaseAbstraction {
 
     WKTWriter wktWriter = new WKTWriter();
+    WKBWriter wkbWriter = new WKBWriter();
 
+    // the dedicated connection of this session, it isn't used if the sessions share a pool
     Connection connection;
     Statement statement;
+    HikariDataSource pool;
+
+    public static final String SERVER_TIME = "Server time";
+    public static final String DECODE_TIME = "Client decode time";
+    public static final String POOL_WAIT_TIME = "Pool wait time";
+    public static final String INDEX_BUILD_TIME = "Index build time";
+
+    public enum ResultDecoding {
+        // parses the text representation of the geometry with PGgeometry
+        TEXT,
+        // selects ST_X and ST_Y as float8 columns
+        COORDINATES,
+        // selects the geometry as little endian WKB and reads the coordinates directly from the bytes
+        WKB
+    }
+
+    private static final VarHandle LITTLE_ENDIAN_DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+    // byte order (1 byte) and geometry type (4 bytes) precede the coordinates of a WKB point
+    private static final int WKB_POINT_X = 5;
+    private static final int WKB_POINT_Y = 13;
+
+    public enum Pagination {
+        // a scroll cursor with hold, which is positioned with MOVE ABSOLUTE for every page
+        CURSOR,
+        // seeks past the order key of the last row of the previous page, the state is kept in the client
+        KEYSET,
+        // skips the rows of the previous pages with OFFSET
+        OFFSET
+    }
+
+    public enum Layout {
+        // a GiST index and the table clustered on it
+        CLUSTER,
+        // the table ordered by a space filling curve key and a GiST index
+        CURVE,
+        // the table ordered by a space filling curve key and a BRIN index, which only stores the bounding box of every block range
+        CURVE_BRIN
+    }
+
+    // the geohash interleaves the bits of longitude and latitude, so ordering by it follows a Z-order curve
+    private static final String CURVE_KEY_COLUMN = "sfc_key";
+
+    // the point tables can be hash partitioned by the token of the S2 cell of this level, a cell is about 150km wide
+    private static final int PARTITION_LEVEL = 6;
+    private static final String PARTITION_COLUMN = "s2_cell";
+    private static final S2RegionCoverer PARTITION_COVERER = S2RegionCoverer.builder()
+            .setMinLevel(PARTITION_LEVEL)
+            .setMaxLevel(PARTITION_LEVEL)
+            .setMaxCells(Integer.MAX_VALUE)
+            .build();
+
+    // geohashes are spatially local, the point id makes the order key unique
+    private static final String PAGE_ORDER = "ST_GeoHash(pos), point_id";
+
+    boolean usePreparedStatements;
+    ResultDecoding resultDecoding = ResultDecoding.TEXT;
+    Pagination pagination = Pagination.CURSOR;
+    Layout layout = Layout.CLUSTER;
+    int partitions;
+    private final double[] coordinates = new double[2];
+    int poolSize;
+    int statementCacheSize;
+    // the default of postgres, every client of the load drivers opens its own connection on top
+    int maxConnections = 100;
+    // the server only keeps the plan of a prepared statement as long as the statement is open, so they are cached per connection
+    // pooled connections use the statement cache of the driver instead
+    final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
+
+    @Autowired
+    public void setSettings(Settings settings) {
+        usePreparedStatements = settings.postgisPreparedStatements();
+        resultDecoding = ResultDecoding.valueOf(settings.postgisResultDecoding().toUpperCase(Locale.ROOT));
+        poolSize = settings.postgisPoolSize();
+        pagination = Pagination.valueOf(settings.postgisPagination().toUpperCase(Locale.ROOT));
+        layout = Layout.valueOf(settings.postgisLayout().replace('-', '_').toUpperCase(Locale.ROOT));
+        partitions = settings.postgisPartitions();
+        statementCacheSize = settings.postgisStatementCacheSize();
+        int loadClients = Math.max(settings.concurrentClients().stream().mapToInt(Integer::intValue).max().orElse(0),
+                settings.openLoopStartRate() > 0 ? settings.openLoopSessions() : 0);
+        maxConnections = 100 + loadClients;
+    }
 
     @Override
     public String getName() {
-        return "PostGIS";
+        StringBuilder name = new StringBuilder("PostGIS");
+        if (usePreparedStatements) {
+            name.append(" prepared");
+        }
+        if (resultDecoding != ResultDecoding.TEXT) {
+            name.append(" ").append(resultDecoding.name().toLowerCase(Locale.ROOT));
+        }
+        if (poolSize > 0) {
+            name.append(" pool ").append(poolSize);
+        }
+        if (pagination != Pagination.CURSOR) {
+            name.append(" ").append(pagination.name().toLowerCase(Locale.ROOT));
+        }
+        if (layout != Layout.CLUSTER) {
+            name.append(" ").append(layoutName());
+        }
+        if (partitions > 0) {
+            name.append(" partitioned ").append(partitions);
+        }
+        return name.toString();
     }
 
     @Override
@@ -44,20 +169,23 @@ public class PostGisDatabase extends DatabaseAbstraction {
         return "postgres";
     }
 
+    private static final String USERNAME = "test_user";
+    private static final String PASSWORD = "p@ssword";
+    private static final int STREAMING_FETCH_SIZE = 10_000;
+
     @SneakyThrows
     @Override
     public void setup() {
         container = new GenericContainer<>(DockerImageName.parse("postgis/postgis:16-3.4"));
-        String username = "test_user";
-        String password = "p@ssword";
         container.withEnv(Map.of(
-                        "POSTGRES_PASSWORD", password,
-                        "POSTGRES_USER", username,
+                        "POSTGRES_PASSWORD", PASSWORD,
+                        "POSTGRES_USER", USERNAME,
                         "POSTGRES_DB", "db"
                 ))
                 .addExposedPort(5432);
+        container.withCommand("postgres", "-c", "max_connections=" + maxConnections);
         if (DatabaseStatisticCollector.useVolume) {
-            container.setBinds(List.of(Bind.parse("postgis-volume:/var/lib/postgresql/data")));
+            container.setBinds(List.of(Bind.parse(getVolume() + ":/var/lib/postgresql/data")));
         }
         container.withLogConsumer(new Slf4jLogConsumer(log));
         container.waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 1));
@@ -65,16 +193,110 @@ public class PostGisDatabase extends DatabaseAbstraction {
         // this is a hack because if postgis isn't initialized the DB restarts and the log message appears twice
         // if it is initialized it appears only once. I could do something fancy but waiting also works
         Thread.sleep(5_000);
+        connect();
+        log.info("Connection established");
+    }
+
+    private void connect() {
         try {
             Properties props = new Properties();
-            props.setProperty("user", username);
-            props.setProperty("password", password);
-            connection = DriverManager.getConnection("jdbc:postgresql://localhost:" + container.getFirstMappedPort() + "/db", props);
-            statement = connection.createStatement();
+            props.setProperty("user", USERNAME);
+            props.setProperty("password", PASSWORD);
+            props.setProperty("preparedStatementCacheQueries", String.valueOf(statementCacheSize));
+            if (resultDecoding != ResultDecoding.TEXT) {
+                // -1 makes the driver request the float8 and bytea columns in the binary format from the first execution on
+                props.setProperty("prepareThreshold", "-1");
+            } else if (usePreparedStatements) {
+                // use a named server side statement from the first execution on instead of after the default of 5
+                props.setProperty("prepareThreshold", "1");
+            }
+            String url = "jdbc:postgresql://localhost:" + container.getFirstMappedPort() + "/db";
+            if (poolSize > 0) {
+                HikariConfig config = new HikariConfig();
+                config.setPoolName(getName());
+                config.setJdbcUrl(url);
+                config.setDataSourceProperties(props);
+                config.setMaximumPoolSize(poolSize);
+                config.setMinimumIdle(poolSize);
+                pool = new HikariDataSource(config);
+            } else {
+                connection = DriverManager.getConnection(url, props);
+                statement = connection.createStatement();
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-        log.info("Connection established");
+    }
+
+    @Override
+    public DatabaseAbstraction openSession() {
+        PostGisDatabase session = new PostGisDatabase();
+        session.container = container;
+        session.usePreparedStatements = usePreparedStatements;
+        session.resultDecoding = resultDecoding;
+        session.poolSize = poolSize;
+        session.statementCacheSize = statementCacheSize;
+        session.pagination = pagination;
+        session.layout = layout;
+        session.partitions = partitions;
+        // the sessions record into the same timings, so the pool wait time of all clients is available under load
+        session.timings = timings;
+        if (pool != null) {
+            session.pool = pool;
+        } else {
+            session.connect();
+        }
+        return session;
+    }
+
+    @Override
+    @SneakyThrows
+    public void closeSession() {
+        deleteCursors();
+        if (pool != null) {
+            return;
+        }
+        for (var preparedStatement : preparedStatements.values()) {
+            preparedStatement.close();
+        }
+        preparedStatements.clear();
+        statement.close();
+        connection.close();
+    }
+
+    @Override
+    public void cleanUp() {
+        super.cleanUp();
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    // a connection for a single operation, either borrowed from the pool or the dedicated connection of this session
+    private final class Lease implements AutoCloseable {
+        final Connection connection;
+        final Statement statement;
+
+        Lease() throws SQLException {
+            if (pool == null) {
+                connection = PostGisDatabase.this.connection;
+                statement = PostGisDatabase.this.statement;
+            } else {
+                QueryTimer waitTime = timing(POOL_WAIT_TIME);
+                waitTime.start();
+                connection = pool.getConnection();
+                waitTime.end();
+                statement = connection.createStatement();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (pool != null) {
+                // returning the connection to the pool closes its statements and result sets
+                connection.close();
+            }
+        }
     }
 
     @Override
@@ -85,9 +307,11 @@ public class PostGisDatabase extends DatabaseAbstraction {
                         SELECT * FROM information_schema.tables
                         WHERE table_name = '{{table_name}}'
                 );""".replace("{{table_name}}", tableName);
-        var result = statement.executeQuery(query);
-        result.next();
-        return result.getBoolean(1);
+        try (Lease lease = new Lease()) {
+            var result = lease.statement.executeQuery(query);
+            result.next();
+            return result.getBoolean(1);
+        }
     }
 
     @SneakyThrows
@@ -102,10 +326,26 @@ public class PostGisDatabase extends DatabaseAbstraction {
                 queryBuilder.append(",");
             }
         }
+        boolean partitioned = partitions > 0 && Arrays.stream(columns).anyMatch(c -> c._2 == DataType.GEO_POINT);
+        if (partitioned) {
+            // the partition key is filled in by the client, it has to be the last column for the inserts
+            queryBuilder.append(", ").append(PARTITION_COLUMN).append(" varchar");
+        }
 
         queryBuilder.append(" )");
+        if (partitioned) {
+            queryBuilder.append(" PARTITION BY HASH (").append(PARTITION_COLUMN).append(")");
+        }
         log.info("Create table. Query= {}", queryBuilder);
-        statement.execute(queryBuilder.toString());
+        try (Lease lease = new Lease()) {
+            lease.statement.execute(queryBuilder.toString());
+            for (int i = 0; partitioned && i < partitions; i++) {
+                lease.statement.execute("CREATE TABLE {{tableName}}_p{{i}} PARTITION OF {{tableName}} FOR VALUES WITH (MODULUS {{partitions}}, REMAINDER {{i}})"
+                        .replace("{{tableName}}", tableName)
+                        .replace("{{i}}", String.valueOf(i))
+                        .replace("{{partitions}}", String.valueOf(partitions)));
+            }
+        }
     }
 
     private String mapDataType(DataType dataType) {
@@ -125,24 +365,107 @@ public class PostGisDatabase extends DatabaseAbstraction {
                 .replace("{{columns}}", column)
                 .replace("{{table}}", table);
 
-        var resultSet = statement.executeQuery(query);
-        resultSet.next();
-        return new Envelope(resultSet.getDouble("minX"), resultSet.getDouble("maxX"),
-                resultSet.getDouble("minY"), resultSet.getDouble("maxY"));
+        try (Lease lease = new Lease()) {
+            var resultSet = lease.statement.executeQuery(query);
+            resultSet.next();
+            return new Envelope(resultSet.getDouble("minX"), resultSet.getDouble("maxX"),
+                    resultSet.getDouble("minY"), resultSet.getDouble("maxY"));
+        }
     }
 
     @SneakyThrows
     @Override
     public void persistMultiplePoints(String tableName, List<DataPoint> dataPoints) {
-        String query = "INSERT INTO {{tableName}} VALUES(ST_MakePoint(?,?),?,?,?);".replace("{{tableName}}", tableName);
-        PreparedStatement preparedStatement = connection.prepareStatement(query);
+        String query = "INSERT INTO {{tableName}} VALUES(ST_MakePoint(?,?),?,?,?{{partition}});".replace("{{tableName}}", tableName).replace("{{partition}}", partitions > 0 ? ",?" : "");
+        try (Lease lease = new Lease()) {
+            PreparedStatement preparedStatement = lease.connection.prepareStatement(query);
+
+            for (var dp : dataPoints) {
+                insertIntoStatement(preparedStatement, dp);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            preparedStatement.close();
+        }
+    }
+
+    @SneakyThrows
+    @Override
+    public void persistMultiplePoints(String tableName, PointBatch batch) {
+        String query = "INSERT INTO {{tableName}} VALUES(ST_MakePoint(?,?),?,?,?{{partition}});".replace("{{tableName}}", tableName).replace("{{partition}}", partitions > 0 ? ",?" : "");
+        try (Lease lease = new Lease(); PreparedStatement preparedStatement = lease.connection.prepareStatement(query)) {
+            for (int i = 0; i < batch.size(); i++) {
+                preparedStatement.setDouble(1, batch.longitude(i));
+                preparedStatement.setDouble(2, batch.latitude(i));
+                preparedStatement.setInt(3, batch.id(i));
+                preparedStatement.setFloat(4, batch.someFloat(i));
+                preparedStatement.setString(5, batch.tags(i));
+                if (partitions > 0) {
+                    preparedStatement.setString(6, partitionCell(batch.longitude(i), batch.latitude(i)));
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
 
-        for (var dp : dataPoints) {
-            insertIntoStatement(preparedStatement, dp);
-            preparedStatement.addBatch();
+    // COPY in text format with the geometry as hex encoded WKB, which PostGIS parses without going through a function call
+    @SneakyThrows
+    @Override
+    public void bulkLoad(String tableName, PointBatch batch) {
+        String query = "COPY {{tableName}} FROM STDIN".replace("{{tableName}}", tableName);
+        try (Lease lease = new Lease();
+             var out = new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(lease.connection.unwrap(PGConnection.class), query), StandardCharsets.UTF_8), 1 << 16)) {
+            for (int i = 0; i < batch.size(); i++) {
+                appendHexWkbPoint(out, batch.longitude(i), batch.latitude(i));
+                out.write('\t');
+                out.write(Integer.toString(batch.id(i)));
+                out.write('\t');
+                // the same value as setFloat produces for the float8 column
+                out.write(Double.toString(batch.someFloat(i)));
+                out.write('\t');
+                appendCopyText(out, batch.tags(i));
+                if (partitions > 0) {
+                    out.write('\t');
+                    out.write(partitionCell(batch.longitude(i), batch.latitude(i)));
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static void appendHexWkbPoint(Writer out, double x, double y) throws IOException {
+        // little endian, geometry type 1 (point) without SRID
+        out.write("0101000000");
+        appendHexLittleEndian(out, Double.doubleToLongBits(x));
+        appendHexLittleEndian(out, Double.doubleToLongBits(y));
+    }
+
+    private static void appendHexLittleEndian(Writer out, long bits) throws IOException {
+        for (int i = 0; i < 8; i++) {
+            int b = (int) (bits >>> (8 * i)) & 0xFF;
+            out.write(HEX[b >>> 4]);
+            out.write(HEX[b & 0xF]);
+        }
+    }
+
+    private static void appendCopyText(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.write("\\\\");
+                case '\t' -> out.write("\\t");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                default -> out.write(c);
+            }
         }
-        preparedStatement.executeBatch();
-        preparedStatement.close();
     }
 
     private void insertIntoStatement(PreparedStatement preparedStatement, DataPoint dp) throws SQLException {
@@ -151,149 +474,518 @@ public class PostGisDatabase extends DatabaseAbstraction {
         preparedStatement.setInt(3, dp.id());
         preparedStatement.setFloat(4, dp.someFloat());
         preparedStatement.setString(5, dp.tags());
+        if (partitions > 0) {
+            preparedStatement.setString(6, partitionCell(dp.longitude(), dp.latitude()));
+        }
     }
 
     @SneakyThrows
     @Override
     public void createIndex(String tableName, String... params) {
-
-        String indexName = tableName + "_" + Arrays.stream(params).reduce("", (a, b) -> a + b) + "_idx";
-        if (!statement.executeQuery("SELECT indexname FROM pg_indexes WHERE tablename='{{tableName}}' AND indexname='{{indexName}}'"
-                .replace("{{tableName}}", tableName)
-                .replace("{{indexName}}", indexName)
-        ).next()) {
-
-            StringBuilder query = new StringBuilder().append("CREATE INDEX ").append(indexName).append(" ON ").append(tableName).append(" USING GIST(");
-
-            for (int i = 0; i < params.length; i++) {
-                query.append(params[i]);
-                if (i != params.length - 1) {
-                    query.append(",");
-                }
+        String indexName = tableName + "_" + Arrays.stream(params).reduce("", (a, b) -> a + b) + (layout == Layout.CURVE_BRIN ? "_brin" : "") + "_idx";
+        try (Lease lease = new Lease()) {
+            Statement statement = lease.statement;
+            if (statement.executeQuery("SELECT indexname FROM pg_indexes WHERE tablename='{{tableName}}' AND indexname='{{indexName}}'"
+                    .replace("{{tableName}}", tableName)
+                    .replace("{{indexName}}", indexName)
+            ).next()) {
+                return;
+            }
+            long buildStart = System.nanoTime();
+            if (layout == Layout.CLUSTER) {
+                statement.execute("CREATE INDEX " + indexName + " ON " + tableName + " USING GIST(" + String.join(",", params) + ");");
+                log.info("Created index: {} ", indexName);
+                log.info("Clustering on index. This will take a long time");
+                statement.execute("CLUSTER " + tableName + " using " + indexName);
+                log.info("Clustering finished. Vacuum analyze");
+            } else {
+                // a generated column isn't part of INSERT and COPY without a column list, so the ingest stays unchanged
+                statement.execute("ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS " + CURVE_KEY_COLUMN + " varchar GENERATED ALWAYS AS (ST_GeoHash(" + params[0] + ")) STORED");
+                String keyIndexName = tableName + "_" + CURVE_KEY_COLUMN + "_idx";
+                log.info("Ordering the table along the space filling curve");
+                // clustering on a btree index sorts the table instead of walking the GiST index, the btree is only needed for that
+                statement.execute("CREATE INDEX " + keyIndexName + " ON " + tableName + " (" + CURVE_KEY_COLUMN + ")");
+                statement.execute("CLUSTER " + tableName + " using " + keyIndexName);
+                statement.execute("DROP INDEX " + keyIndexName);
+                String method = layout == Layout.CURVE_BRIN ? "BRIN" : "GIST";
+                statement.execute("CREATE INDEX " + indexName + " ON " + tableName + " USING " + method + "(" + String.join(",", params) + ");");
+                log.info("Created {} index: {} ", method, indexName);
             }
-            query.append(");");
-            statement.execute(query.toString());
-            log.info("Created index: {} ", indexName);
-            log.info("Clustering on index. This will take a long time");
-            statement.execute("CLUSTER " + tableName + " using " + indexName);
-            log.info("Clustering finished. Vacuum analyze");
             statement.execute("VACUUM ANALYZE " + tableName);
-            log.info("Vacuum analyze Done");
+            long buildNanos = System.nanoTime() - buildStart;
+            timing(INDEX_BUILD_TIME).record(buildNanos);
+            log.info("Vacuum analyze Done, building the {} layout took {}", layoutName(), Helper.sensiblePrint(buildNanos / 1_000_000));
         }
     }
 
+    private String layoutName() {
+        return layout.name().replace('_', '-').toLowerCase(Locale.ROOT);
+    }
+
     HashMap<String, Integer> cursorNames = new HashMap<>();
+    // the cursors only exist on the connection they were declared on, so it is kept until the cursors are deleted
+    private Lease cursorLease;
+
+    private record PageKey(String geoHash, int pointId) {
+    }
+
+    // the client side state of the keyset and offset pagination
+    private static final class PagedQuery {
+        final int pages;
+        // the order key of the last row before a page, for every page whose start is known
+        final TreeMap<Integer, PageKey> pageStarts = new TreeMap<>();
+
+        PagedQuery(int pages) {
+            this.pages = pages;
+            pageStarts.put(0, null);
+        }
+    }
+
+    HashMap<Integer, PagedQuery> pagedQueries = new HashMap<>();
+    // the tables whose page order index was ensured by this session
+    final Set<String> pageOrderIndexes = new HashSet<>();
 
     @Override
-    @SneakyThrows
     public Page<DataPoint> fetchArea(String tableName, Geometry shape, int page, int pageSize) {
+        return switch (pagination) {
+            case CURSOR -> fetchPageWithCursor(tableName, shape, page, pageSize);
+            case KEYSET, OFFSET -> fetchPageWithoutCursor(tableName, shape, page, pageSize);
+        };
+    }
+
+    @SneakyThrows
+    private Page<DataPoint> fetchPageWithCursor(String tableName, Geometry shape, int page, int pageSize) {
         String cursorName = "cs" + pageSize;
+        if (cursorLease == null) {
+            cursorLease = new Lease();
+        }
+        Statement statement = cursorLease.statement;
         if (!cursorNames.containsKey(cursorName)) {
             String wkt = convertToWKT(shape);
-            String query = "SELECT * FROM {{tableName}} WHERE ST_INTERSECTS(ST_GeomFromText('{{wkt}}'), pos);".replace("{{tableName}}", tableName).replace("{{wkt}}", wkt);
+            // a cursor can't have bind parameters, so the covering cells are always part of the query
+            String partitionCondition = partitionCondition(coveringCells(shape.getEnvelopeInternal()), false);
+            String query = "SELECT {{columns}} FROM {{tableName}} WHERE ST_INTERSECTS(ST_GeomFromText('{{wkt}}'), pos){{partitions}};".replace("{{columns}}", selectedColumns()).replace("{{tableName}}", tableName).replace("{{wkt}}", wkt).replace("{{partitions}}", partitionCondition);
             String cursorStatement = "DECLARE " + cursorName + " SCROLL CURSOR WITH HOLD FOR " + query;
             log.debug("Creating cursor with: {}", cursorStatement);
             statement.execute(cursorStatement);
 
-            var resultSet = statement.executeQuery("SELECT Count(*) FROM {{tableName}} WHERE ST_INTERSECTS(ST_GeomFromText('{{wkt}}'), pos);".replace("{{tableName}}", tableName).replace("{{wkt}}", wkt));
+            var resultSet = statement.executeQuery("SELECT Count(*) FROM {{tableName}} WHERE ST_INTERSECTS(ST_GeomFromText('{{wkt}}'), pos){{partitions}};".replace("{{tableName}}", tableName).replace("{{wkt}}", wkt).replace("{{partitions}}", partitionCondition));
             resultSet.next();
             int elementCount = resultSet.getInt(1);
             int pages = elementCount / pageSize;
             cursorNames.put(cursorName, pages);
         }
         statement.execute("MOVE ABSOLUTE " + page * pageSize + " IN " + cursorName);
+        QueryTimer serverTime = timing(SERVER_TIME);
+        serverTime.start();
         var set = statement.executeQuery("FETCH " + pageSize + " FROM " + cursorName);
+        serverTime.end();
         var points = convert(set);
         int maxPageCount = cursorNames.get(cursorName);
-        cursorNames.put(cursorName, page);
         log.debug("Result sie: {}", points.size());
         return new Page<>(page, maxPageCount, points);
     }
 
+    @SneakyThrows
+    private Page<DataPoint> fetchPageWithoutCursor(String tableName, Geometry shape, int page, int pageSize) {
+        String[] cells = coveringCells(shape.getEnvelopeInternal());
+        try (Lease lease = new Lease()) {
+            ensurePageOrderIndex(lease.statement, tableName);
+            PagedQuery pagedQuery = pagedQueries.get(pageSize);
+            if (pagedQuery == null) {
+                String countQuery = "SELECT count(*) FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos){{partitions}};".replace("{{tableName}}", tableName).replace("{{geometry}}", geometryParameter(shape)).replace("{{partitions}}", partitionCondition(cells));
+                var resultSet = executeAreaQuery(lease.statement, countQuery, withCells(cells, shape));
+                resultSet.next();
+                pagedQuery = new PagedQuery(resultSet.getInt(1) / pageSize);
+                pagedQueries.put(pageSize, pagedQuery);
+            }
+            if (pagination == Pagination.OFFSET) {
+                List<Object> parameters = new ArrayList<>(Arrays.asList(withCells(cells, shape)));
+                String query = "SELECT {{columns}} FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos){{partitions}} ORDER BY {{order}}{{limit}};"
+                        .replace("{{columns}}", selectedColumns())
+                        .replace("{{tableName}}", tableName)
+                        .replace("{{geometry}}", geometryParameter(shape))
+                        .replace("{{partitions}}", partitionCondition(cells))
+                        .replace("{{order}}", PAGE_ORDER)
+                        .replace("{{limit}}", limitClause(pageSize, (long) page * pageSize, parameters));
+                return new Page<>(page, pagedQuery.pages, convert(executeTimed(lease, query, parameters.toArray())));
+            }
+
+            // a page that was skipped, e.g. by random access, is reached from the closest known start before it
+            // by a single query that only reads the key of the row before the page
+            var knownStart = pagedQuery.pageStarts.floorEntry(page);
+            PageKey start = knownStart.getValue();
+            if (knownStart.getKey() < page) {
+                start = keyBefore(lease, tableName, shape, cells, start, (long) (page - knownStart.getKey()) * pageSize);
+                if (start == null) {
+                    return new Page<>(page, pagedQuery.pages, List.of());
+                }
+                pagedQuery.pageStarts.put(page, start);
+            }
+
+            List<Object> seekParameters = new ArrayList<>(List.of(shape));
+            String seek = seekCondition(start, seekParameters);
+            List<Object> parameters = new ArrayList<>(Arrays.asList(withCells(cells, seekParameters.toArray())));
+            String query = "SELECT {{columns}}, ST_GeoHash(pos) AS page_key FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos){{seek}}{{partitions}} ORDER BY {{order}}{{limit}};"
+                    .replace("{{columns}}", selectedColumns())
+                    .replace("{{tableName}}", tableName)
+                    .replace("{{geometry}}", geometryParameter(shape))
+                    .replace("{{seek}}", seek)
+                    .replace("{{partitions}}", partitionCondition(cells))
+                    .replace("{{order}}", PAGE_ORDER)
+                    .replace("{{limit}}", limitClause(pageSize, 0, parameters));
+            var set = executeTimed(lease, query, parameters.toArray());
+
+            QueryTimer decodeTime = timing(DECODE_TIME);
+            decodeTime.start();
+            List<DataPoint> points = new ArrayList<>(pageSize);
+            String lastGeoHash = null;
+            while (set.next()) {
+                points.add(toDataPoint(set));
+                lastGeoHash = set.getString("page_key");
+            }
+            decodeTime.end();
+            if (lastGeoHash != null) {
+                pagedQuery.pageStarts.put(page + 1, new PageKey(lastGeoHash, points.get(points.size() - 1).id()));
+            }
+            return new Page<>(page, pagedQuery.pages, points);
+        }
+    }
+
+    // the keyset and offset pages are read in this order. The volumes are shared with the cursor pagination, so the index
+    // is created on the first page of a table instead of with the table
+    private void ensurePageOrderIndex(Statement statement, String tableName) throws SQLException {
+        if (!pageOrderIndexes.add(tableName)) {
+            return;
+        }
+        String indexName = tableName + "_page_order_idx";
+        if (statement.executeQuery("SELECT indexname FROM pg_indexes WHERE tablename='{{tableName}}' AND indexname='{{indexName}}'"
+                .replace("{{tableName}}", tableName)
+                .replace("{{indexName}}", indexName)
+        ).next()) {
+            return;
+        }
+        long buildStart = System.nanoTime();
+        statement.execute("CREATE INDEX IF NOT EXISTS " + indexName + " ON " + tableName + " (" + PAGE_ORDER + ")");
+        long buildNanos = System.nanoTime() - buildStart;
+        timing(INDEX_BUILD_TIME).record(buildNanos);
+        log.info("Building the page order index of {} took {}", tableName, Helper.sensiblePrint(buildNanos / 1_000_000));
+    }
+
+    // the key of the row that comes the given number of rows after the start
+    private PageKey keyBefore(Lease lease, String tableName, Geometry shape, String[] cells, PageKey start, long rows) throws SQLException {
+        List<Object> seekParameters = new ArrayList<>(List.of(shape));
+        String seek = seekCondition(start, seekParameters);
+        List<Object> parameters = new ArrayList<>(Arrays.asList(withCells(cells, seekParameters.toArray())));
+        String query = "SELECT ST_GeoHash(pos) AS page_key, point_id FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos){{seek}}{{partitions}} ORDER BY {{order}}{{limit}};"
+                .replace("{{tableName}}", tableName)
+                .replace("{{geometry}}", geometryParameter(shape))
+                .replace("{{seek}}", seek)
+                .replace("{{partitions}}", partitionCondition(cells))
+                .replace("{{order}}", PAGE_ORDER)
+                .replace("{{limit}}", limitClause(1, rows - 1, parameters));
+        var set = executeAreaQuery(lease.statement, query, parameters.toArray());
+        return set.next() ? new PageKey(set.getString("page_key"), set.getInt("point_id")) : null;
+    }
+
+    // LIMIT and OFFSET follow the partition condition, so they are bound after the covering cells. Otherwise every page
+    // number would be a prepared statement of its own
+    private String limitClause(long limit, long offset, List<Object> parameters) {
+        if (!usePreparedStatements) {
+            return " LIMIT " + limit + " OFFSET " + offset;
+        }
+        parameters.add(limit);
+        parameters.add(offset);
+        return " LIMIT ? OFFSET ?";
+    }
+
+    // the geohash only contains base32 characters, so it can be part of the query if there are no prepared statements
+    private String seekCondition(PageKey start, List<Object> parameters) {
+        if (start == null) {
+            return "";
+        }
+        if (!usePreparedStatements) {
+            return " AND (" + PAGE_ORDER + ") > ('" + start.geoHash() + "', " + start.pointId() + ")";
+        }
+        parameters.add(start.geoHash());
+        parameters.add(start.pointId());
+        return " AND (" + PAGE_ORDER + ") > (?, ?)";
+    }
+
     @SneakyThrows
     @Override
     public List<DataPoint> fetchArea(String tableName, Geometry shape) {
-        String wkt = convertToWKT(shape);
-        String query = "SELECT * FROM {{tableName}} WHERE ST_INTERSECTS(ST_GeomFromText('{{wkt}}'), pos);".replace("{{tableName}}", tableName).replace("{{wkt}}", wkt);
-        var set = statement.executeQuery(query);
-        return convert(set);
+        String[] cells = coveringCells(shape.getEnvelopeInternal());
+        String query = "SELECT {{columns}} FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos){{partitions}};".replace("{{columns}}", selectedColumns()).replace("{{tableName}}", tableName).replace("{{geometry}}", geometryParameter(shape)).replace("{{partitions}}", partitionCondition(cells));
+        try (Lease lease = new Lease()) {
+            var set = executeTimed(lease, query, withCells(cells, shape));
+            return convert(set);
+        }
+    }
+
+    @SneakyThrows
+    @Override
+    public void streamArea(String tableName, Geometry shape, Consumer<DataPoint> sink) {
+        String[] cells = coveringCells(shape.getEnvelopeInternal());
+        String query = "SELECT {{columns}} FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos){{partitions}};".replace("{{columns}}", selectedColumns()).replace("{{tableName}}", tableName).replace("{{geometry}}", geometryParameter(shape)).replace("{{partitions}}", partitionCondition(cells));
+        // the driver only fetches rows in batches of the fetch size if it runs inside a transaction, otherwise it reads the whole result
+        try (Lease lease = new Lease()) {
+            Connection connection = lease.connection;
+            connection.setAutoCommit(false);
+            try (Statement streamingStatement = connection.createStatement()) {
+                streamingStatement.setFetchSize(STREAMING_FETCH_SIZE);
+                var set = executeAreaQuery(streamingStatement, query, withCells(cells, shape));
+                while (set.next()) {
+                    sink.accept(toDataPoint(set));
+                }
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    @SneakyThrows
+    @Override
+    public PointBatch fetchAreaBatch(String tableName, Geometry shape) {
+        String[] cells = coveringCells(shape.getEnvelopeInternal());
+        String query = "SELECT {{columns}} FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos){{partitions}};".replace("{{columns}}", selectedColumns()).replace("{{tableName}}", tableName).replace("{{geometry}}", geometryParameter(shape)).replace("{{partitions}}", partitionCondition(cells));
+        try (Lease lease = new Lease()) {
+            var set = executeTimed(lease, query, withCells(cells, shape));
+            QueryTimer decodeTime = timing(DECODE_TIME);
+            decodeTime.start();
+            PointBatch batch = new PointBatch(1024);
+            while (set.next()) {
+                readCoordinates(set);
+                batch.add(coordinates[0], coordinates[1], set.getInt("point_id"), set.getFloat("some_float"), set.getString("tags"));
+            }
+            decodeTime.end();
+            return batch;
+        }
     }
 
     @SneakyThrows
     @Override
     public List<DataPoint> fetchArea(String tableName, Geometry contractPolygon, Geometry filter) {
-        String wkt1 = convertToWKT(contractPolygon);
-        String wkt2 = convertToWKT(filter);
-        String query = "SELECT * FROM {{tableName}} WHERE ST_INTERSECTS(ST_Intersection( ST_GeomFromText('{{wkt1}}'),ST_GeomFromText('{{wkt2}}')), pos);"
+        String[] cells = coveringCells(contractPolygon.getEnvelopeInternal().intersection(filter.getEnvelopeInternal()));
+        String query = "SELECT {{columns}} FROM {{tableName}} WHERE ST_INTERSECTS(ST_Intersection( {{geometry1}},{{geometry2}}), pos){{partitions}};"
+                .replace("{{columns}}", selectedColumns())
                 .replace("{{tableName}}", tableName)
-                .replace("{{wkt1}}", wkt1)
-                .replace("{{wkt2}}", wkt2);
-        var set = statement.executeQuery(query);
-        return convert(set);
+                .replace("{{geometry1}}", geometryParameter(contractPolygon))
+                .replace("{{geometry2}}", geometryParameter(filter))
+                .replace("{{partitions}}", partitionCondition(cells));
+        try (Lease lease = new Lease()) {
+            var set = executeTimed(lease, query, withCells(cells, contractPolygon, filter));
+            return convert(set);
+        }
     }
 
     @SneakyThrows
     @Override
     public List<DataPoint> fetchArea(String tableName, Geometry shape, String parameter, float greaterThan) {
-        String wkt = convertToWKT(shape);
-        String query = "SELECT * FROM {{tableName}} WHERE ST_INTERSECTS(ST_GeomFromText('{{wkt}}'), pos) AND {{parameter}}>{{gt}};"
+        String[] cells = coveringCells(shape.getEnvelopeInternal());
+        String query = "SELECT {{columns}} FROM {{tableName}} WHERE ST_INTERSECTS({{geometry}}, pos) AND {{parameter}}>{{gt}}{{partitions}};"
+                .replace("{{columns}}", selectedColumns())
                 .replace("{{tableName}}", tableName)
-                .replace("{{wkt}}", wkt)
+                .replace("{{geometry}}", geometryParameter(shape))
                 .replace("{{parameter}}", parameter)
-                .replace("{{gt}}", greaterThan + "");
-        var set = statement.executeQuery(query);
-        return convert(set);
+                .replace("{{gt}}", usePreparedStatements ? "?" : greaterThan + "")
+                .replace("{{partitions}}", partitionCondition(cells));
+        try (Lease lease = new Lease()) {
+            var set = executeTimed(lease, query, withCells(cells, shape, greaterThan));
+            return convert(set);
+        }
     }
 
     @Override
     @SneakyThrows
     public void deleteCursors() {
+        pagedQueries.clear();
+        if (cursorLease == null) {
+            return;
+        }
         for (String cursorName : cursorNames.keySet()) {
-            statement.execute("CLOSE " + cursorName);
+            cursorLease.statement.execute("CLOSE " + cursorName);
         }
         cursorNames.clear();
+        cursorLease.close();
+        cursorLease = null;
     }
 
     @SneakyThrows
     private List<DataPoint> convert(ResultSet set) {
+        QueryTimer decodeTime = timing(DECODE_TIME);
+        decodeTime.start();
         List<DataPoint> results = new ArrayList<>();
         while (set.next()) {
-            var obj = set.getObject("pos", PGobject.class);
-            PGgeometry geom = new PGgeometry(obj.getValue());
-            var point = geom.getGeometry().getFirstPoint();
-            results.add(new DataPoint(
-                    point.getX(),
-                    point.getY(),
-                    set.getInt("point_id"),
-                    set.getFloat("some_float"),
-                    set.getString("tags")
-            ));
+            results.add(toDataPoint(set));
         }
+        decodeTime.end();
         return results;
     }
 
+    private DataPoint toDataPoint(ResultSet set) throws SQLException {
+        readCoordinates(set);
+        return new DataPoint(
+                coordinates[0],
+                coordinates[1],
+                set.getInt("point_id"),
+                set.getFloat("some_float"),
+                set.getString("tags")
+        );
+    }
+
+    // reads longitude and latitude of the current row into coordinates
+    private void readCoordinates(ResultSet set) throws SQLException {
+        switch (resultDecoding) {
+            case TEXT -> {
+                var point = new PGgeometry(set.getObject("pos", PGobject.class).getValue()).getGeometry().getFirstPoint();
+                coordinates[0] = point.getX();
+                coordinates[1] = point.getY();
+            }
+            case COORDINATES -> {
+                coordinates[0] = set.getDouble("lon");
+                coordinates[1] = set.getDouble("lat");
+            }
+            case WKB -> {
+                byte[] wkb = set.getBytes("pos_wkb");
+                coordinates[0] = (double) LITTLE_ENDIAN_DOUBLE.get(wkb, WKB_POINT_X);
+                coordinates[1] = (double) LITTLE_ENDIAN_DOUBLE.get(wkb, WKB_POINT_Y);
+            }
+        }
+    }
+
+    private String selectedColumns() {
+        return switch (resultDecoding) {
+            case TEXT -> "*";
+            case COORDINATES -> "ST_X(pos) AS lon, ST_Y(pos) AS lat, point_id, some_float, tags";
+            case WKB -> "ST_AsBinary(pos, 'NDR') AS pos_wkb, point_id, some_float, tags";
+        };
+    }
+
     private String convertToWKT(Geometry shape) {
         return wktWriter.write(shape);
     }
 
+    private String geometryParameter(Geometry shape) {
+        return usePreparedStatements ? "ST_GeomFromWKB(?)" : "ST_GeomFromText('" + convertToWKT(shape) + "')";
+    }
+
+    private static String partitionCell(double longitude, double latitude) {
+        return S2CellId.fromLatLng(S2LatLng.fromDegrees(latitude, longitude)).parent(PARTITION_LEVEL).toToken();
+    }
+
+    // the tokens of the partition cells that cover the envelope, or null if the tables aren't partitioned
+    private String[] coveringCells(Envelope envelope) {
+        if (partitions == 0) {
+            return null;
+        }
+        var rect = new S2LatLngRect(S2LatLng.fromDegrees(envelope.getMinY(), envelope.getMinX()), S2LatLng.fromDegrees(envelope.getMaxY(), envelope.getMaxX()));
+        List<String> cells = new ArrayList<>();
+        // the covering merges complete groups of cells into their parent, so they are expanded to the partition level again
+        for (S2CellId cell : PARTITION_COVERER.getCovering(rect).cellIds()) {
+            for (S2CellId child = cell.childBegin(PARTITION_LEVEL); !child.equals(cell.childEnd(PARTITION_LEVEL)); child = child.next()) {
+                cells.add(child.toToken());
+            }
+        }
+        return cells.toArray(String[]::new);
+    }
+
+    private String partitionCondition(String[] cells) {
+        return partitionCondition(cells, usePreparedStatements);
+    }
+
+    // restricting the partition key to the covering cells lets the planner skip the partitions of all other cells
+    private String partitionCondition(String[] cells, boolean bound) {
+        if (cells == null) {
+            return "";
+        }
+        if (bound) {
+            return " AND " + PARTITION_COLUMN + " = ANY(?)";
+        }
+        return " AND " + PARTITION_COLUMN + " IN ('" + String.join("','", cells) + "')";
+    }
+
+    // the partition condition is the last one of every query, so the covering cells are bound after all other parameters
+    private static Object[] withCells(String[] cells, Object... parameters) {
+        if (cells == null) {
+            return parameters;
+        }
+        Object[] withCells = Arrays.copyOf(parameters, parameters.length + 1);
+        withCells[parameters.length] = cells;
+        return withCells;
+    }
+
+    // the time until the driver has received the result, the decoding of the rows is measured separately
+    private ResultSet executeTimed(Lease lease, String query, Object... parameters) throws SQLException {
+        QueryTimer serverTime = timing(SERVER_TIME);
+        serverTime.start();
+        var set = executeAreaQuery(lease.statement, query, parameters);
+        serverTime.end();
+        return set;
+    }
+
+    // with prepared statements the parameters are bound in order, geometries as WKB, otherwise they are already part of the query
+    private ResultSet executeAreaQuery(Statement plainStatement, String query, Object... parameters) throws SQLException {
+        if (!usePreparedStatements) {
+            return plainStatement.executeQuery(query);
+        }
+        PreparedStatement preparedStatement;
+        if (pool != null) {
+            // closed together with the pooled connection, the driver keeps the server side statement in its cache
+            preparedStatement = plainStatement.getConnection().prepareStatement(query);
+        } else {
+            preparedStatement = preparedStatements.computeIfAbsent(query, this::prepare);
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] instanceof Geometry geometry) {
+                preparedStatement.setBytes(i + 1, wkbWriter.write(geometry));
+            } else if (parameters[i] instanceof String[] cells) {
+                preparedStatement.setArray(i + 1, preparedStatement.getConnection().createArrayOf("varchar", cells));
+            } else {
+                preparedStatement.setObject(i + 1, parameters[i]);
+            }
+        }
+        preparedStatement.setFetchSize(plainStatement.getFetchSize());
+        return preparedStatement.executeQuery();
+    }
+
+    @SneakyThrows
+    private PreparedStatement prepare(String query) {
+        return connection.prepareStatement(query);
+    }
+
     @SneakyThrows
     @Override
     public void dropTables(String... tables) {
-        for (String t : tables) {
-            statement.execute("DROP TABLE IF EXISTS " + t);
+        try (Lease lease = new Lease()) {
+            for (String t : tables) {
+                lease.statement.execute("DROP TABLE IF EXISTS " + t);
+                pageOrderIndexes.remove(t);
+            }
         }
     }
 
     @SneakyThrows
     @Override
     public int count(String tableName) {
-        var result = statement.executeQuery("SELECT count(*) from " + tableName);
-        result.next();
-        return result.getInt(1);
+        try (Lease lease = new Lease()) {
+            var result = lease.statement.executeQuery("SELECT count(*) from " + tableName);
+            result.next();
+            return result.getInt(1);
+        }
     }
 
     @Override
     public String getVolume() {
-        return "postgis-volume";
+        // the table is only built once per volume, so every layout needs its own
+        StringBuilder volume = new StringBuilder("postgis");
+        if (layout != Layout.CLUSTER) {
+            volume.append("-").append(layoutName());
+        }
+        if (partitions > 0) {
+            volume.append("-partitioned-").append(partitions);
+        }
+        return volume.append("-volume").toString();
     }
 }
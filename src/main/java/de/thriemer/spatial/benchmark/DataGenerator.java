@@ -1,6 +1,7 @@
 package de.thriemer.spatial.benchmark;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DataGenerator {
 
@@ -18,10 +19,10 @@ public class DataGenerator {
         return r.nextDouble() * (max - min) + min;
     }
 
-    private int id = 0;
+    private final AtomicInteger id = new AtomicInteger();
 
     public DataPoint generateDataPoint(double lonMin, double lonMax, double latMin, double latMax) {
-        return new DataPoint(generateInRange(lonMin, lonMax), generateInRange(latMin, latMax), id++, r.nextFloat(), "generated");
+        return new DataPoint(generateInRange(lonMin, lonMax), generateInRange(latMin, latMax), id.getAndIncrement(), r.nextFloat(), "generated");
     }
 
 
@@ -0,0 +1,377 @@
+package de.thriemer.spatial.benchmark;
+
+import com.google.protobuf.ByteString;
+import crosby.binary.Fileformat;
+import crosby.binary.file.FileBlock;
+import crosby.binary.osmosis.OsmosisBinaryParser;
+import de.thriemer.spatial.framework.DatabaseAbstraction;
+import lombok.extern.slf4j.Slf4j;
+import me.tongfei.progressbar.ProgressBar;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Loads a PBF file into a database with overlapped stages:
+// read raw blobs -> inflate and decode blocks (decoders) -> normalise tags and build batches (normalisers) -> persist (writers).
+// The stages are connected with bounded queues, so a slow database throttles decoding and memory stays flat.
+// When a snapshot of the PBF file exists, the writers are fed from the snapshot instead of the first three stages.
+@Slf4j
+class OSMIngestPipeline {
+
+    private static final long REPORT_INTERVAL_SECONDS = 10;
+
+    private final File file;
+    private final int decoders;
+    private final int normalisers;
+    private final int writers;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    private final Stage readStage = new Stage("Read");
+    private final Stage decodeStage = new Stage("Decode");
+    private final Stage normaliseStage = new Stage("Normalise tags");
+    private final Stage readSnapshotStage = new Stage("Read snapshot");
+    private final Stage writeStage = new Stage("Write");
+
+    OSMIngestPipeline(File file, int decoders, int normalisers, int writers, int batchSize) {
+        this.file = file;
+        this.decoders = decoders;
+        this.normalisers = normalisers;
+        this.writers = writers;
+        this.batchSize = batchSize;
+        this.queueCapacity = Math.max(decoders, Math.max(normalisers, writers)) * 2;
+    }
+
+    // a PBF blob as it is stored in the file, inflating it is the expensive part and happens in the decoders
+    private record RawBlock(String type, ByteString indexData, byte[] blob) {
+    }
+
+    // the nodes of one PBF block, the tags are encoded by the normalisers
+    private record DecodedNodes(double[] longitude, double[] latitude, int[] id, List<Collection<Tag>> tags, int size) {
+    }
+
+    private static final RawBlock END_OF_BLOCKS = new RawBlock(null, null, null);
+    private static final DecodedNodes END_OF_NODES = new DecodedNodes(null, null, null, null, 0);
+    private static final PointBatch END_OF_BATCHES = new PointBatch(0);
+
+    long run(DatabaseAbstraction db, String tableName, long expectedPoints, OSMSnapshot.Writer snapshotWriter) throws InterruptedException, ExecutionException {
+        BlockingQueue<RawBlock> rawBlocks = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<DecodedNodes> decodedNodes = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<PointBatch> batches = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger runningDecoders = new AtomicInteger(decoders);
+        AtomicInteger runningNormalisers = new AtomicInteger(normalisers);
+
+        List<Callable<Void>> producers = new ArrayList<>();
+        producers.add(() -> read(rawBlocks));
+        for (int i = 0; i < decoders; i++) {
+            producers.add(() -> decode(rawBlocks, decodedNodes, runningDecoders));
+        }
+        for (int i = 0; i < normalisers; i++) {
+            producers.add(() -> normalise(decodedNodes, batches, runningNormalisers, snapshotWriter));
+        }
+        return execute(db, tableName, expectedPoints, producers, batches, null, List.of(readStage, decodeStage, normaliseStage, writeStage));
+    }
+
+    // skips decoding completely, the batches are recycled between the snapshot reader and the writers
+    long runFromSnapshot(DatabaseAbstraction db, String tableName, OSMSnapshot.Reader snapshotReader) throws InterruptedException, ExecutionException {
+        BlockingQueue<PointBatch> batches = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<PointBatch> freeBatches = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < queueCapacity; i++) {
+            freeBatches.add(new PointBatch(batchSize));
+        }
+        List<Callable<Void>> producers = List.of(() -> readSnapshot(snapshotReader, batches, freeBatches));
+        return execute(db, tableName, snapshotReader.points(), producers, batches, freeBatches, List.of(readSnapshotStage, writeStage));
+    }
+
+    private long execute(DatabaseAbstraction db, String tableName, long expectedPoints, List<Callable<Void>> producers,
+                         BlockingQueue<PointBatch> batches, BlockingQueue<PointBatch> freeBatches, List<Stage> stages) throws InterruptedException, ExecutionException {
+        List<DatabaseAbstraction> sessions = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            sessions.add(db.openSession());
+        }
+        ProgressBar progressBar = new ProgressBar("Load into " + db.getName(), expectedPoints);
+        db.startBulkLoad(tableName);
+
+        int tasks = producers.size() + writers;
+        ExecutorService executor = Executors.newFixedThreadPool(tasks);
+        try {
+            var completionService = new ExecutorCompletionService<Void>(executor);
+            producers.forEach(completionService::submit);
+            for (var session : sessions) {
+                completionService.submit(() -> write(session, tableName, batches, freeBatches, progressBar));
+            }
+
+            long start = System.nanoTime();
+            int finished = 0;
+            while (finished < tasks) {
+                Future<Void> done = completionService.poll(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                if (done == null) {
+                    report(stages, start, false);
+                    continue;
+                }
+                // rethrows the first failure of any stage, the finally block then stops the remaining stages
+                done.get();
+                finished++;
+            }
+            db.finishBulkLoad(tableName);
+            report(stages, start, true);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            progressBar.close();
+            sessions.forEach(DatabaseAbstraction::closeSession);
+        }
+        return writeStage.items.sum();
+    }
+
+    private Void readSnapshot(OSMSnapshot.Reader snapshotReader, BlockingQueue<PointBatch> batches, BlockingQueue<PointBatch> freeBatches) throws IOException, InterruptedException {
+        while (true) {
+            PointBatch batch = freeBatches.take();
+            long start = System.nanoTime();
+            if (!snapshotReader.readBlock(batch)) {
+                break;
+            }
+            readSnapshotStage.processed(batch.size(), System.nanoTime() - start);
+            batches.put(batch);
+        }
+        for (int i = 0; i < writers; i++) {
+            batches.put(END_OF_BATCHES);
+        }
+        return null;
+    }
+
+    private Void read(BlockingQueue<RawBlock> rawBlocks) throws IOException, InterruptedException {
+        try (var input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = input.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long start = System.nanoTime();
+                byte[] headerBytes = new byte[headerSize];
+                input.readFully(headerBytes);
+                var header = Fileformat.BlobHeader.parseFrom(headerBytes);
+                byte[] blob = new byte[header.getDatasize()];
+                input.readFully(blob);
+                readStage.processed(1, System.nanoTime() - start);
+                rawBlocks.put(new RawBlock(header.getType(), header.getIndexdata(), blob));
+            }
+        }
+        for (int i = 0; i < decoders; i++) {
+            rawBlocks.put(END_OF_BLOCKS);
+        }
+        return null;
+    }
+
+    private Void decode(BlockingQueue<RawBlock> rawBlocks, BlockingQueue<DecodedNodes> decodedNodes, AtomicInteger runningDecoders) throws InterruptedException, IOException, DataFormatException {
+        // the parser keeps the granularity and string table of the current block, so every decoder needs its own one
+        var collector = new NodeCollector();
+        var parser = new OsmosisBinaryParser();
+        parser.setSink(collector);
+        Inflater inflater = new Inflater();
+        try {
+            RawBlock block;
+            while ((block = rawBlocks.take()) != END_OF_BLOCKS) {
+                long start = System.nanoTime();
+                var fileBlock = FileBlock.newInstance(block.type(), inflate(block.blob(), inflater), block.indexData());
+                parser.handleBlock(fileBlock);
+                DecodedNodes nodes = collector.drain();
+                decodeStage.processed(nodes.size(), System.nanoTime() - start);
+                if (nodes.size() > 0) {
+                    decodedNodes.put(nodes);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        if (runningDecoders.decrementAndGet() == 0) {
+            for (int i = 0; i < normalisers; i++) {
+                decodedNodes.put(END_OF_NODES);
+            }
+        }
+        return null;
+    }
+
+    private static ByteString inflate(byte[] data, Inflater inflater) throws IOException, DataFormatException {
+        var blob = Fileformat.Blob.parseFrom(data);
+        if (blob.hasRaw()) {
+            return blob.getRaw();
+        }
+        if (!blob.hasZlibData()) {
+            throw new IOException("Only raw and zlib compressed PBF blobs are supported");
+        }
+        byte[] inflated = new byte[blob.getRawSize()];
+        inflater.reset();
+        inflater.setInput(blob.getZlibData().toByteArray());
+        int length = inflater.inflate(inflated);
+        if (length != inflated.length || !inflater.finished()) {
+            throw new IOException("PBF blob is corrupted, expected " + inflated.length + " bytes but got " + length);
+        }
+        return ByteString.copyFrom(inflated);
+    }
+
+    private Void normalise(BlockingQueue<DecodedNodes> decodedNodes, BlockingQueue<PointBatch> batches, AtomicInteger runningNormalisers, OSMSnapshot.Writer snapshotWriter) throws InterruptedException, IOException {
+        Random r = ThreadLocalRandom.current();
+        TagEncoder encoder = new TagEncoder(TagEncoder.Escaping.ADX_CSV);
+        PointBatch batch = new PointBatch(batchSize);
+        DecodedNodes nodes;
+        while ((nodes = decodedNodes.take()) != END_OF_NODES) {
+            long start = System.nanoTime();
+            for (int i = 0; i < nodes.size(); i++) {
+                String tags = encoder.encode(nodes.tags().get(i));
+                batch.add(nodes.longitude()[i], nodes.latitude()[i], nodes.id()[i], r.nextFloat(), tags);
+                if (batch.size() == batchSize) {
+                    if (snapshotWriter != null) {
+                        snapshotWriter.write(batch);
+                    }
+                    batches.put(batch);
+                    batch = new PointBatch(batchSize);
+                }
+            }
+            normaliseStage.processed(nodes.size(), System.nanoTime() - start);
+        }
+        if (batch.size() > 0) {
+            if (snapshotWriter != null) {
+                snapshotWriter.write(batch);
+            }
+            batches.put(batch);
+        }
+        if (runningNormalisers.decrementAndGet() == 0) {
+            for (int i = 0; i < writers; i++) {
+                batches.put(END_OF_BATCHES);
+            }
+        }
+        return null;
+    }
+
+    private Void write(DatabaseAbstraction session, String tableName, BlockingQueue<PointBatch> batches, BlockingQueue<PointBatch> freeBatches, ProgressBar progressBar) throws InterruptedException {
+        PointBatch batch;
+        while ((batch = batches.take()) != END_OF_BATCHES) {
+            long start = System.nanoTime();
+            session.bulkLoad(tableName, batch);
+            writeStage.processed(batch.size(), System.nanoTime() - start);
+            progressBar.stepBy(batch.size());
+            if (freeBatches != null) {
+                batch.clear();
+                freeBatches.put(batch);
+            }
+        }
+        return null;
+    }
+
+    private void report(List<Stage> stages, long start, boolean done) {
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        for (var stage : stages) {
+            long items = stage.items.sum();
+            log.info("{} stage{}: {} {} in {} s, {} {}/s, {} s busy",
+                    stage.name, done ? " finished" : "", items, stage == readStage ? "blocks" : "points",
+                    String.format("%.1f", elapsedSeconds), String.format("%.0f", items / elapsedSeconds),
+                    stage == readStage ? "blocks" : "points", String.format("%.1f", stage.busyNanos.sum() / 1e9));
+        }
+    }
+
+    private static class Stage {
+        final String name;
+        final LongAdder items = new LongAdder();
+        // summed over all threads of the stage, busy time close to elapsed time * threads means the stage is the bottleneck
+        final LongAdder busyNanos = new LongAdder();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void processed(long count, long nanos) {
+            items.add(count);
+            busyNanos.add(nanos);
+        }
+    }
+
+    // collects the nodes that the osmosis parser emits for one block
+    private static class NodeCollector implements Sink {
+
+        private static final int INITIAL_CAPACITY = 8_000;
+
+        private double[] longitude = new double[INITIAL_CAPACITY];
+        private double[] latitude = new double[INITIAL_CAPACITY];
+        private int[] id = new int[INITIAL_CAPACITY];
+        private final List<Collection<Tag>> tags = new ArrayList<>(INITIAL_CAPACITY);
+        private int size;
+
+        @Override
+        public void process(EntityContainer entityContainer) {
+            if (entityContainer instanceof NodeContainer nodeContainer) {
+                if (size == longitude.length) {
+                    grow();
+                }
+                var entity = nodeContainer.getEntity();
+                longitude[size] = entity.getLongitude();
+                latitude[size] = entity.getLatitude();
+                id[size] = (int) entity.getId();
+                tags.add(entity.getTags());
+                size++;
+            }
+        }
+
+        private void grow() {
+            int capacity = longitude.length * 2;
+            longitude = Arrays.copyOf(longitude, capacity);
+            latitude = Arrays.copyOf(latitude, capacity);
+            id = Arrays.copyOf(id, capacity);
+        }
+
+        DecodedNodes drain() {
+            var nodes = new DecodedNodes(
+                    Arrays.copyOf(longitude, size), Arrays.copyOf(latitude, size),
+                    Arrays.copyOf(id, size), new ArrayList<>(tags), size);
+            tags.clear();
+            size = 0;
+            return nodes;
+        }
+
+        @Override
+        public void initialize(Map<String, Object> map) {
+
+        }
+
+        @Override
+        public void complete() {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+package de.thriemer.spatial.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+// Binary cache of the parsed points of a PBF file, so later runs don't have to decode the PBF file again.
+// The file starts with a header (magic, version, SHA-256 of the PBF file, point count, block count) followed by blocks:
+// int count, int tagBytes, double longitude[count], double latitude[count], int id[count], float someFloat[count],
+// int tagLength[count], byte tags[tagBytes]. All values are little endian.
+@Slf4j
+class OSMSnapshot {
+
+    private static final byte[] MAGIC = "OSMSNAP".getBytes();
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + HASH_LENGTH + Long.BYTES + Long.BYTES;
+    private static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int BYTES_PER_POINT = 2 * Double.BYTES + Integer.BYTES + Float.BYTES + Integer.BYTES;
+    private static final long WINDOW_SIZE = 256L << 20;
+
+    private final File pbfFile;
+    private final byte[] pbfHash;
+    private final Path path;
+
+    OSMSnapshot(File pbfFile) throws IOException {
+        this.pbfFile = pbfFile;
+        this.pbfHash = sha256(pbfFile);
+        this.path = pbfFile.toPath().resolveSibling(pbfFile.getName() + "." + HexFormat.of().formatHex(pbfHash, 0, 8) + ".snapshot");
+    }
+
+    private static byte[] sha256(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[1 << 20];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // a snapshot is only used when it was completely written for exactly this PBF file
+    boolean exists() {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            byte[] hash = new byte[HASH_LENGTH];
+            header.get(magic);
+            int version = header.getInt();
+            header.get(hash);
+            boolean valid = header.remaining() == 2 * Long.BYTES && Arrays.equals(MAGIC, magic) && version == VERSION && Arrays.equals(pbfHash, hash);
+            if (!valid) {
+                log.info("Ignoring outdated snapshot {}", path);
+            }
+            return valid;
+        } catch (IOException e) {
+            log.warn("Can't read snapshot {}", path, e);
+            return false;
+        }
+    }
+
+    Writer createWriter() throws IOException {
+        return new Writer();
+    }
+
+    Reader openReader() throws IOException {
+        return new Reader();
+    }
+
+    // blocks can be written from multiple threads, the snapshot only becomes visible when the writer is committed
+    class Writer implements Closeable {
+
+        private final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        private final FileChannel channel;
+        private long points;
+        private long blocks;
+        private boolean committed;
+
+        private Writer() throws IOException {
+            channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            channel.position(HEADER_SIZE);
+        }
+
+        void write(PointBatch batch) throws IOException {
+            int count = batch.size();
+            int tagBytes = count == 0 ? 0 : batch.tagStart(count - 1) + batch.tagLength(count - 1) - batch.tagStart(0);
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + count * BYTES_PER_POINT + tagBytes).order(ByteOrder.LITTLE_ENDIAN);
+            block.putInt(count).putInt(tagBytes);
+            for (int i = 0; i < count; i++) {
+                block.putDouble(batch.longitude(i));
+            }
+            for (int i = 0; i < count; i++) {
+                block.putDouble(batch.latitude(i));
+            }
+            for (int i = 0; i < count; i++) {
+                block.putInt(batch.id(i));
+            }
+            for (int i = 0; i < count; i++) {
+                block.putFloat(batch.someFloat(i));
+            }
+            for (int i = 0; i < count; i++) {
+                block.putInt(batch.tagLength(i));
+            }
+            if (count > 0) {
+                block.put(batch.tagBytes(), batch.tagStart(0), tagBytes);
+            }
+            block.flip();
+            synchronized (this) {
+                while (block.hasRemaining()) {
+                    channel.write(block);
+                }
+                points += count;
+                blocks++;
+            }
+        }
+
+        synchronized void commit() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(VERSION).put(pbfHash).putLong(points).putLong(blocks);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(false);
+            channel.close();
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            log.info("Wrote snapshot of {} points to {}", points, path);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tempPath);
+            }
+        }
+    }
+
+    // reads the blocks in order through a window that is mapped into memory, so the points are copied straight into the batches
+    class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final long size;
+        private final long points;
+        private long position = HEADER_SIZE;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        private Reader() throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+            points = map(HEADER_SIZE - 2 * Long.BYTES, Long.BYTES).getLong();
+            log.info("Reading {} points from snapshot {} instead of {}", points, path, pbfFile);
+        }
+
+        long points() {
+            return points;
+        }
+
+        // appends the next block to the batch, returns false when all blocks were read
+        boolean readBlock(PointBatch batch) throws IOException {
+            if (position >= size) {
+                return false;
+            }
+            ByteBuffer blockHeader = map(position, BLOCK_HEADER_SIZE);
+            int count = blockHeader.getInt();
+            int tagBytes = blockHeader.getInt();
+            ByteBuffer block = map(position + BLOCK_HEADER_SIZE, count * BYTES_PER_POINT + tagBytes);
+            position += BLOCK_HEADER_SIZE + (long) count * BYTES_PER_POINT + tagBytes;
+
+            int offset = 0;
+            var longitude = block.slice(offset, count * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            offset += count * Double.BYTES;
+            var latitude = block.slice(offset, count * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            offset += count * Double.BYTES;
+            var id = block.slice(offset, count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            offset += count * Integer.BYTES;
+            var someFloat = block.slice(offset, count * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            offset += count * Float.BYTES;
+            var tagLengths = block.slice(offset, count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            offset += count * Integer.BYTES;
+            batch.addAll(longitude, latitude, id, someFloat, tagLengths, block.slice(offset, tagBytes));
+            return true;
+        }
+
+        private ByteBuffer map(long start, int length) throws IOException {
+            if (window == null || start < windowStart || start + length > windowStart + window.capacity()) {
+                long mappedSize = Math.min(Math.max(WINDOW_SIZE, length), size - start);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, mappedSize);
+                windowStart = start;
+            }
+            return window.slice((int) (start - windowStart), length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+package de.thriemer.spatial.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+// Column oriented storage of many points. Instead of one DataPoint object per point the values are kept in primitive
+// arrays and the tags as UTF-8 bytes in one shared array. A slice is a view on the same arrays without copying them.
+public class PointBatch {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private double[] longitude;
+    private double[] latitude;
+    private int[] id;
+    private float[] someFloat;
+    // the tags of point i are tagBytes[tagOffsets[i]] until tagBytes[tagOffsets[i + 1]]
+    private int[] tagOffsets;
+    private byte[] tagBytes;
+
+    private final int from;
+    private int size;
+    // slices share the arrays with their batch, even slices starting at 0 would overwrite the points after them
+    private final boolean readOnly;
+
+    public PointBatch(int expectedPoints) {
+        this(expectedPoints, expectedPoints * 16L);
+    }
+
+    public PointBatch(int expectedPoints, long expectedTagBytes) {
+        int capacity = Math.max(expectedPoints, 16);
+        longitude = new double[capacity];
+        latitude = new double[capacity];
+        id = new int[capacity];
+        someFloat = new float[capacity];
+        tagOffsets = new int[capacity + 1];
+        tagBytes = new byte[(int) Math.min(Math.max(expectedTagBytes, 64), Integer.MAX_VALUE - 8)];
+        from = 0;
+        readOnly = false;
+    }
+
+    private PointBatch(PointBatch parent, int from, int to) {
+        longitude = parent.longitude;
+        latitude = parent.latitude;
+        id = parent.id;
+        someFloat = parent.someFloat;
+        tagOffsets = parent.tagOffsets;
+        tagBytes = parent.tagBytes;
+        this.from = parent.from + from;
+        this.size = to - from;
+        this.readOnly = true;
+    }
+
+    public static PointBatch of(List<DataPoint> points) {
+        PointBatch batch = new PointBatch(points.size());
+        points.forEach(batch::add);
+        return batch;
+    }
+
+    public void add(DataPoint point) {
+        add(point.longitude(), point.latitude(), point.id(), point.someFloat(), point.tags());
+    }
+
+    public void add(double longitude, double latitude, int id, float someFloat, String tags) {
+        byte[] bytes = tags == null ? EMPTY : tags.getBytes(StandardCharsets.UTF_8);
+        add(longitude, latitude, id, someFloat, bytes, 0, bytes.length);
+    }
+
+    public void add(double longitude, double latitude, int id, float someFloat, byte[] tags, int tagsOffset, int tagsLength) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Slices are read only");
+        }
+        ensureCapacity(size + 1, (long) tagOffsets[size] + tagsLength);
+        this.longitude[size] = longitude;
+        this.latitude[size] = latitude;
+        this.id[size] = id;
+        this.someFloat[size] = someFloat;
+        int tagStart = tagOffsets[size];
+        System.arraycopy(tags, tagsOffset, tagBytes, tagStart, tagsLength);
+        tagOffsets[size + 1] = tagStart + tagsLength;
+        size++;
+    }
+
+    // bulk append for column oriented sources like the OSMSnapshot, the buffers are consumed completely
+    void addAll(DoubleBuffer longitude, DoubleBuffer latitude, IntBuffer id, FloatBuffer someFloat, IntBuffer tagLengths, ByteBuffer tags) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Slices are read only");
+        }
+        int count = longitude.remaining();
+        ensureCapacity(size + count, (long) tagOffsets[size] + tags.remaining());
+        longitude.get(this.longitude, size, count);
+        latitude.get(this.latitude, size, count);
+        id.get(this.id, size, count);
+        someFloat.get(this.someFloat, size, count);
+        for (int i = size; i < size + count; i++) {
+            tagOffsets[i + 1] = tagOffsets[i] + tagLengths.get();
+        }
+        tags.get(tagBytes, tagOffsets[size], tags.remaining());
+        size += count;
+    }
+
+    public void clear() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Slices are read only");
+        }
+        size = 0;
+    }
+
+    private void ensureCapacity(int points, long bytes) {
+        if (points > longitude.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8L, longitude.length * 3L / 2 + 1);
+            longitude = Arrays.copyOf(longitude, capacity);
+            latitude = Arrays.copyOf(latitude, capacity);
+            id = Arrays.copyOf(id, capacity);
+            someFloat = Arrays.copyOf(someFloat, capacity);
+            tagOffsets = Arrays.copyOf(tagOffsets, capacity + 1);
+        }
+        if (bytes > tagBytes.length) {
+            if (bytes > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("The tags of a point batch can't be larger than 2GB");
+            }
+            tagBytes = Arrays.copyOf(tagBytes, (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(bytes, tagBytes.length * 3L / 2)));
+        }
+    }
+
+    public PointBatch slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Slice [" + from + ", " + to + ") is out of bounds for size " + size);
+        }
+        return new PointBatch(this, from, to);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double longitude(int i) {
+        return longitude[from + i];
+    }
+
+    public double latitude(int i) {
+        return latitude[from + i];
+    }
+
+    public int id(int i) {
+        return id[from + i];
+    }
+
+    public float someFloat(int i) {
+        return someFloat[from + i];
+    }
+
+    public String tags(int i) {
+        int start = tagStart(i);
+        return new String(tagBytes, start, tagLength(i), StandardCharsets.UTF_8);
+    }
+
+    // for writers that can work with the raw bytes, the bytes of point i start at tagStart(i) in tagBytes()
+    public byte[] tagBytes() {
+        return tagBytes;
+    }
+
+    public int tagStart(int i) {
+        return tagOffsets[from + i];
+    }
+
+    public int tagLength(int i) {
+        return tagOffsets[from + i + 1] - tagOffsets[from + i];
+    }
+
+    public DataPoint get(int i) {
+        return new DataPoint(longitude(i), latitude(i), id(i), someFloat(i), tags(i));
+    }
+
+    // a view that creates the DataPoint objects lazily for code that still needs a list
+    public List<DataPoint> asList() {
+        return new AbstractList<>() {
+            @Override
+            public DataPoint get(int index) {
+                return PointBatch.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.thriemer.spatial.benchmark;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.util.Collection;
+
+// Joins the tags of a node as "Tag('key'='value') Tag('key'='value')" and escapes them in a single pass.
+// The internal buffer is reused between calls, so an encoder must not be shared between threads.
+public class TagEncoder {
+
+    public enum Escaping {
+        // The inline ingest of ADX is CSV, so runs of pipes, commas and quotes are replaced and line breaks removed.
+        // All databases store the tags in this form, so the results of the databases can be compared.
+        ADX_CSV {
+            @Override
+            void append(StringBuilder out, char c, char previous) {
+                switch (c) {
+                    case '|' -> {
+                        if (previous != '|') out.append('-');
+                    }
+                    case ',' -> {
+                        if (previous != ',') out.append(' ');
+                    }
+                    case '"' -> {
+                        if (previous != '"') out.append('\'');
+                    }
+                    case '\n' -> {
+                    }
+                    default -> out.append(c);
+                }
+            }
+        },
+        // escaping for a JSON string, e.g. a property of a GeoJSON feature
+        GEOJSON {
+            @Override
+            void append(StringBuilder out, char c, char previous) {
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+        };
+
+        abstract void append(StringBuilder out, char c, char previous);
+    }
+
+    private final Escaping escaping;
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    public TagEncoder(Escaping escaping) {
+        this.escaping = escaping;
+    }
+
+    public String encode(Collection<Tag> tags) {
+        buffer.setLength(0);
+        boolean first = true;
+        for (Tag tag : tags) {
+            if (!first) {
+                buffer.append(' ');
+            }
+            first = false;
+            buffer.append("Tag('");
+            appendEscaped(tag.getKey());
+            buffer.append("'='");
+            appendEscaped(tag.getValue());
+            buffer.append("')");
+        }
+        return buffer.toString();
+    }
+
+    public String escape(String value) {
+        buffer.setLength(0);
+        appendEscaped(value);
+        return buffer.toString();
+    }
+
+    private void appendEscaped(String value) {
+        // runs are collapsed based on the previous input character, which matches replacing every run with a regex
+        char previous = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            escaping.append(buffer, c, previous);
+            previous = c;
+        }
+    }
+
+}
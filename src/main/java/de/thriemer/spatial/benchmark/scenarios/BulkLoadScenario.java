@@ -0,0 +1,103 @@
+package de.thriemer.spatial.benchmark.scenarios;
+
+import de.thriemer.spatial.benchmark.DataGenerator;
+import de.thriemer.spatial.benchmark.PointBatch;
+import de.thriemer.spatial.framework.DataType;
+import de.thriemer.spatial.framework.DatabaseAbstraction;
+import de.thriemer.spatial.framework.Scenario;
+import io.vavr.Tuple2;
+import lombok.SneakyThrows;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// measures the bulk load mode of the databases, the points are loaded by multiple sessions in parallel like in the initial OSM import
+@Component
+public class BulkLoadScenario extends Scenario<Integer> {
+    final String tableName = "point_data_bulk_load";
+
+    private static final int WRITERS = 4;
+    private static final int BATCH_SIZE = 10_000;
+
+    private DataGenerator generator;
+    // GER bounding box
+    private final double minLon = 5;
+    private final double maxLon = 15;
+    private final double minLat = 45;
+    private final double maxLat = 55;
+
+    public BulkLoadScenario() {
+        super("Bulk Load");
+    }
+
+    @Override
+    public List<Integer> getParams() {
+        return List.of(10_000, 100_000, 1_000_000);
+    }
+
+    @Override
+    public void prepare(DatabaseAbstraction db) {
+        timer.resetAll();
+        if (db.tableExists(tableName)) {
+            db.dropTables(tableName);
+        }
+        db.createTable(tableName, new Tuple2<>("pos", DataType.GEO_POINT), new Tuple2<>("point_id", DataType.INT), new Tuple2<>("some_float", DataType.DOUBLE), new Tuple2<>("tags", DataType.STRING));
+        generator = new DataGenerator();
+    }
+
+    @SneakyThrows
+    @Override
+    public void iterate(DatabaseAbstraction database, Integer p) {
+        PointBatch points = new PointBatch(p);
+        for (int i = 0; i < p; i++) {
+            points.add(generator.generateDataPoint(minLon, maxLon, minLat, maxLat));
+        }
+        List<DatabaseAbstraction> sessions = new ArrayList<>(WRITERS);
+        for (int i = 0; i < WRITERS; i++) {
+            sessions.add(database.openSession());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            timer.start();
+            database.startBulkLoad(tableName);
+            List<Future<?>> writes = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                var session = sessions.get(w);
+                int firstBatch = w;
+                // every writer loads every WRITERS-th batch, so a session is never used by two threads
+                writes.add(executor.submit(() -> {
+                    for (int start = firstBatch * BATCH_SIZE; start < p; start += WRITERS * BATCH_SIZE) {
+                        session.bulkLoad(tableName, points.slice(start, Math.min(start + BATCH_SIZE, p)));
+                    }
+                }));
+            }
+            for (var write : writes) {
+                write.get();
+            }
+            database.finishBulkLoad(tableName);
+            timer.end();
+        } finally {
+            executor.shutdown();
+            sessions.forEach(DatabaseAbstraction::closeSession);
+        }
+    }
+
+    // every iteration opens its own writer sessions and switches the bulk load mode of the shared table
+    @Override
+    public boolean supportsConcurrentLoad() {
+        return false;
+    }
+
+    @Override
+    public void cleanup(DatabaseAbstraction db) {
+        timer.resetAll();
+        generator = new DataGenerator();
+        db.dropTables(tableName);
+        db.createTable(tableName, new Tuple2<>("pos", DataType.GEO_POINT), new Tuple2<>("point_id", DataType.INT), new Tuple2<>("some_float", DataType.DOUBLE), new Tuple2<>("tags", DataType.STRING));
+    }
+
+}
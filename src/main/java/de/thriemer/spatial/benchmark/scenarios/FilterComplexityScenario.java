@@ -4,6 +4,7 @@ import de.thriemer.spatial.benchmark.DataGenerator;
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.framework.Blackhole;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
+import de.thriemer.spatial.framework.OpenLoopScenario;
 import de.thriemer.spatial.framework.Scenario;
 import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.Coordinate;
@@ -12,12 +13,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import static de.thriemer.spatial.framework.Helper.generateCircle;
 
 @Component
 @Slf4j
-public class FilterComplexityScenario extends Scenario<Integer> {
+public class FilterComplexityScenario extends Scenario<Integer> implements OpenLoopScenario<Integer> {
     private DataGenerator generator;
     private final String tableName = Parameters.OSM_DATA_TABLE;
     private double minLon, maxLon, minLat, maxLat;
@@ -50,17 +52,27 @@ public class FilterComplexityScenario extends Scenario<Integer> {
 
     @Override
     public void iterate(DatabaseAbstraction database, Integer vertexCount) {
-        double radius = 0.2;
-
-        var p = new Coordinate(generator.generateInRange(minLon + radius, maxLon - radius), generator.generateInRange(minLat + radius, maxLat - radius));
-
-        Geometry queryShape = generateCircle(p.getX(), p.getY(), radius, vertexCount);
+        Geometry queryShape = nextQueryShape(vertexCount);
         timer.start();
         List<DataPoint> points = database.fetchArea(tableName, queryShape);
         timer.end();
         blackhole.consumeFull(points);
     }
 
+    @Override
+    public Consumer<DatabaseAbstraction> createRequest(Integer vertexCount) {
+        Geometry queryShape = nextQueryShape(vertexCount);
+        return database -> blackhole.consumeFull(database.fetchArea(tableName, queryShape));
+    }
+
+    private Geometry nextQueryShape(int vertexCount) {
+        double radius = 0.2;
+
+        var p = new Coordinate(generator.generateInRange(minLon + radius, maxLon - radius), generator.generateInRange(minLat + radius, maxLat - radius));
+
+        return generateCircle(p.getX(), p.getY(), radius, vertexCount);
+    }
+
     @Override
     public void cleanup(DatabaseAbstraction db) {
         timer.resetAll();
@@ -4,15 +4,17 @@ import de.thriemer.spatial.benchmark.DataGenerator;
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.framework.DataType;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
+import de.thriemer.spatial.framework.OpenLoopScenario;
 import de.thriemer.spatial.framework.Scenario;
 import io.vavr.Tuple2;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 @Component
-public class InsertScenario extends Scenario<Integer> {
+public class InsertScenario extends Scenario<Integer> implements OpenLoopScenario<Integer> {
     final String tableName = "point_data_insert";
 
     private DataGenerator generator;
@@ -50,6 +52,12 @@ public class InsertScenario extends Scenario<Integer> {
         timer.end();
     }
 
+    @Override
+    public Consumer<DatabaseAbstraction> createRequest(Integer p) {
+        List<DataPoint> points = IntStream.range(0, p).mapToObj(i -> generator.generateDataPoint(minLon, maxLon, minLat, maxLat)).toList();
+        return database -> database.persistMultiplePoints(tableName, points);
+    }
+
     @Override
     public void cleanup(DatabaseAbstraction db) {
         timer.resetAll();
@@ -1,6 +1,9 @@
 package de.thriemer.spatial.benchmark.scenarios;
 
 import de.thriemer.spatial.benchmark.DataGenerator;
+import de.thriemer.spatial.evaluation.Evaluation;
+import de.thriemer.spatial.evaluation.QueryTimer;
+import de.thriemer.spatial.evaluation.SummaryStatistics;
 import de.thriemer.spatial.framework.Blackhole;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
 import de.thriemer.spatial.framework.Scenario;
@@ -12,12 +15,17 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 @Component
 @Slf4j
 public class PaginationScenarioRandomAccess extends Scenario<Object> {
+    public static final String FIRST_PAGE_TIME = "First page time";
+
     private final String tableName = Parameters.OSM_DATA_TABLE;
+    // the first page also counts the results, the random pages afterwards show how fast a database jumps to an unseen page
+    private final QueryTimer firstPageTimer = new QueryTimer();
 
     @Autowired
     Blackhole blackhole;
@@ -32,6 +40,7 @@ public class PaginationScenarioRandomAccess extends Scenario<Object> {
     @Override
     public void prepare(DatabaseAbstraction db) {
         timer.resetAll();
+        firstPageTimer.resetAll();
         Parameters.createOSMDataTable(db, tableName);
         boundingBox = db.getDataBoundingBox(tableName, "pos");
     }
@@ -47,7 +56,9 @@ public class PaginationScenarioRandomAccess extends Scenario<Object> {
         var queryShape = new GeometryFactory().toGeometry(
                 new Envelope(cx - 0.1, cx + 0.1, cy - 0.1, cy + 0.1));
 
+        firstPageTimer.start();
         var page = database.fetchArea(tableName, queryShape, 0, pageSize);
+        firstPageTimer.end();
 
         var pageList = new ArrayList<>(IntStream.range(1, page.maxPageNumber + 1).boxed().toList());
         Collections.shuffle(pageList);
@@ -64,10 +75,19 @@ public class PaginationScenarioRandomAccess extends Scenario<Object> {
     }
 
 
+    @Override
+    public Map<String, SummaryStatistics> getAdditionalResults() {
+        if (firstPageTimer.getSampleCount() == 0) {
+            return Map.of();
+        }
+        return Map.of(FIRST_PAGE_TIME, Evaluation.calculateHistogramStatistics(name, firstPageTimer.getUnit(), firstPageTimer.getHistogram(), firstPageTimer.getFirst(), QueryTimer.NANOS_PER_UNIT));
+    }
+
     @Override
     public void cleanup(DatabaseAbstraction db) {
         generator = new DataGenerator(42);
         timer.resetAll();
+        firstPageTimer.resetAll();
     }
 
 
@@ -0,0 +1,139 @@
+package de.thriemer.spatial.benchmark.scenarios;
+
+import de.thriemer.spatial.benchmark.DataGenerator;
+import de.thriemer.spatial.benchmark.DataPoint;
+import de.thriemer.spatial.evaluation.Evaluation;
+import de.thriemer.spatial.evaluation.QueryTimer;
+import de.thriemer.spatial.evaluation.SummaryStatistics;
+import de.thriemer.spatial.framework.Blackhole;
+import de.thriemer.spatial.framework.DatabaseAbstraction;
+import de.thriemer.spatial.framework.Scenario;
+import org.locationtech.jts.geom.Geometry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static de.thriemer.spatial.framework.Helper.generateCircle;
+
+// the query timer records the time to the first row, the total time and the peak heap are additional results
+@Component
+public class StreamingFetchScenario extends Scenario<String> {
+
+    public static final String TOTAL_TIME = "Total query time";
+    public static final String PEAK_HEAP = "Peak heap usage";
+
+    private static final String MATERIALIZED = "materialized";
+    private static final String STREAMING = "streaming";
+
+    private final String tableName = Parameters.OSM_DATA_TABLE;
+    private DataGenerator generator;
+    private double minLon, maxLon, minLat, maxLat;
+
+    private final QueryTimer totalTimer = new QueryTimer();
+    private final List<Double> peakHeapUsage = new ArrayList<>();
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(p -> p.getType() == MemoryType.HEAP)
+            .toList();
+
+    @Autowired
+    Blackhole blackhole;
+
+    public StreamingFetchScenario() {
+        super("Streaming fetch time to first row");
+    }
+
+    @Override
+    public List<String> getParams() {
+        return List.of(MATERIALIZED, STREAMING);
+    }
+
+    @Override
+    public void prepare(DatabaseAbstraction db) {
+        resetAll();
+        Parameters.createOSMDataTable(db, tableName);
+        generator = new DataGenerator(42);
+
+        var bb = db.getDataBoundingBox(tableName, "pos");
+        minLat = bb.getMinY();
+        maxLat = bb.getMaxY();
+        minLon = bb.getMinX();
+        maxLon = bb.getMaxX();
+    }
+
+    @Override
+    public void iterate(DatabaseAbstraction database, String style) {
+        double radius = 0.2;
+        double lon = generator.generateInRange(minLon + radius, maxLon - radius);
+        double lat = generator.generateInRange(minLat + radius, maxLat - radius);
+        Geometry queryShape = generateCircle(lon, lat, radius, 500);
+
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long baseline = usedHeap();
+
+        totalTimer.start();
+        if (style.equals(MATERIALIZED)) {
+            timer.start();
+            List<DataPoint> points = database.fetchArea(tableName, queryShape);
+            timer.end();
+            blackhole.consumeFull(points);
+        } else {
+            boolean[] firstRow = {true};
+            timer.start();
+            database.streamArea(tableName, queryShape, point -> {
+                if (firstRow[0]) {
+                    timer.end();
+                    firstRow[0] = false;
+                }
+                blackhole.consumeFull(point);
+            });
+            if (firstRow[0]) {
+                timer.end();
+            }
+        }
+        totalTimer.end();
+
+        long peak = heapPools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+        peakHeapUsage.add((double) Math.max(0, peak - baseline));
+    }
+
+    private long usedHeap() {
+        return heapPools.stream().mapToLong(p -> p.getUsage().getUsed()).sum();
+    }
+
+    // every iteration collects the garbage and measures the peak heap usage of the whole process
+    @Override
+    public boolean supportsConcurrentLoad() {
+        return false;
+    }
+
+    @Override
+    public Map<String, SummaryStatistics> getAdditionalResults() {
+        if (peakHeapUsage.isEmpty()) {
+            return Map.of();
+        }
+        return Map.of(
+                TOTAL_TIME, Evaluation.calculateHistogramStatistics(name, totalTimer.getUnit(), totalTimer.getHistogram(), totalTimer.getFirst(), QueryTimer.NANOS_PER_UNIT),
+                PEAK_HEAP, Evaluation.calculateArithmeticStatistics(name, "bytes", new ArrayList<>(peakHeapUsage))
+        );
+    }
+
+    @Override
+    public void cleanup(DatabaseAbstraction db) {
+        resetAll();
+        generator = new DataGenerator(42);
+    }
+
+    private void resetAll() {
+        timer.resetAll();
+        totalTimer.resetAll();
+        peakHeapUsage.clear();
+    }
+
+}
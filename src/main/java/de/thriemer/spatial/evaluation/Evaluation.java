@@ -1,6 +1,7 @@
 package de.thriemer.spatial.evaluation;
 
 import com.jakewharton.fliptables.FlipTable;
+import de.thriemer.spatial.benchmark.scenarios.BulkLoadScenario;
 import de.thriemer.spatial.benchmark.scenarios.InsertScenario;
 import de.thriemer.spatial.benchmark.scenarios.PaginationScenario;
 import de.thriemer.spatial.evaluation.ahp.AhpSolver;
@@ -8,6 +9,7 @@ import de.thriemer.spatial.framework.DatabaseStatisticCollector;
 import de.thriemer.spatial.framework.Helper;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import org.HdrHistogram.Histogram;
 import org.knowm.xchart.*;
 import org.knowm.xchart.style.Styler;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -71,6 +73,8 @@ public class Evaluation {
                       ON base.name = other.name
                       and base.param = other.param
                       and base.type = other.type
+                      and base.concurrency is not distinct from other.concurrency
+                      and base.target_rate is not distinct from other.target_rate
                       and base.unit != 'error'
                       and other.unit != 'error'
                 """);
@@ -106,10 +110,13 @@ public class Evaluation {
 
         createNormalisedChart(new InsertScenario().name, "Batch size", "Time / Batch size");
         createNormalisedChart(new PaginationScenario().name, "Page size", "Time / Page size");
+        createNormalisedChart(new BulkLoadScenario().name, "Point count", "Time / Point count");
         createEfficiencyNormalisedBarChart();
         createCombinationBarChart();
         createDatabaseBarChart("Multiple geolocation filters");
         createDatabaseBarChart("Pagination Scenario Random Access");
+        createTailLatencyChart("Multiple geolocation filters");
+        createTailLatencyChart("Pagination Scenario Random Access");
 
         var pointDiagrams = Map.of(
                 "Polygon filter complexity", "Vertex count",
@@ -121,12 +128,100 @@ public class Evaluation {
         for (var entry : pointDiagrams.entrySet()) {
             createPointChart(entry.getKey(), entry.getValue());
         }
+
+        for (String scenario : summaryStatisticsRepository.getScenarioNamesByType(DatabaseStatisticCollector.LOAD_QUERY_TIME)) {
+            createLoadCharts(scenario);
+        }
+
+        for (String scenario : summaryStatisticsRepository.getScenarioNamesByType(DatabaseStatisticCollector.OPEN_LOOP_QUERY_TIME)) {
+            createLatencyThroughputChart(scenario);
+        }
+    }
+
+    private void createLatencyThroughputChart(String scenario) {
+        var dbNames = summaryStatisticsRepository.getAllDatabases();
+        var list = summaryStatisticsRepository.findAllByNameAndType(scenario, DatabaseStatisticCollector.OPEN_LOOP_QUERY_TIME)
+                .stream().filter(s -> !s.unit().equals("error")).toList();
+        if (list.isEmpty()) {
+            return;
+        }
+        var params = list.stream().map(ScenarioStatisticsEntity::getParam).distinct().sorted().toList();
+        for (String param : params) {
+            String suffix = param.isEmpty() ? "" : "_" + param;
+            XYChart chart = configureLoadChart("Log P99 query time [" + list.getFirst().unit() + "]");
+            chart.setXAxisTitle("Throughput [requests/s]");
+            for (String dbName : dbNames) {
+                var entries = list.stream()
+                        .filter(e -> e.getDatabase().equals(dbName) && e.getParam().equals(param))
+                        .sorted(Comparator.comparing(ScenarioStatisticsEntity::getTargetRate))
+                        .toList();
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                chart.addSeries(dbName,
+                        entries.stream().map(ScenarioStatisticsEntity::getThroughput).toList(),
+                        entries.stream().map(ScenarioStatisticsEntity::p99).toList());
+            }
+            Helper.savePdf(chart, "latency_throughput_" + scenario + suffix);
+        }
+    }
+
+    private void createLoadCharts(String scenario) {
+        var dbNames = summaryStatisticsRepository.getAllDatabases();
+        var list = summaryStatisticsRepository.findAllByNameAndType(scenario, DatabaseStatisticCollector.LOAD_QUERY_TIME)
+                .stream().filter(s -> !s.unit().equals("error")).toList();
+        if (list.isEmpty()) {
+            return;
+        }
+        var params = list.stream().map(ScenarioStatisticsEntity::getParam).distinct().sorted().toList();
+        for (String param : params) {
+            String suffix = param.isEmpty() ? "" : "_" + param;
+            XYChart latencyChart = configureLoadChart("Log Query time [" + list.getFirst().unit() + "]");
+            XYChart throughputChart = configureLoadChart("Log Throughput [queries/s]");
+            for (String dbName : dbNames) {
+                var entries = list.stream()
+                        .filter(e -> e.getDatabase().equals(dbName) && e.getParam().equals(param))
+                        .sorted(Comparator.comparing(ScenarioStatisticsEntity::getConcurrency))
+                        .toList();
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                List<Double> clients = entries.stream().map(e -> (double) e.getConcurrency()).toList();
+                List<Double> latencies = entries.stream().map(ScenarioStatisticsEntity::avg).toList();
+                List<Double> errorBars = entries.stream().map(e -> confidenceSize(e.standardError(), 0.95)).toList();
+                List<Double> throughputs = entries.stream().map(ScenarioStatisticsEntity::getThroughput).toList();
+                latencyChart.addSeries(dbName, clients, latencies, errorBars);
+                throughputChart.addSeries(dbName, clients, throughputs);
+            }
+            Helper.savePdf(latencyChart, "load_latency_" + scenario + suffix);
+            Helper.savePdf(throughputChart, "load_throughput_" + scenario + suffix);
+        }
+    }
+
+    private XYChart configureLoadChart(String yAxisTitle) {
+        XYChart chart = new XYChartBuilder().width(chartWidth).height(chartHeight)
+                .xAxisTitle("Concurrent clients")
+                .yAxisTitle(yAxisTitle)
+                .build();
+
+        chart.getStyler().setDefaultSeriesRenderStyle(XYSeries.XYSeriesRenderStyle.Line);
+        chart.getStyler().setChartTitleVisible(false);
+        chart.getStyler().setAxisTitlesVisible(true);
+        chart.getStyler().setChartBackgroundColor(new Color(255, 255, 255, 0));
+        chart.getStyler().setLegendPosition(Styler.LegendPosition.OutsideS);
+        chart.getStyler().setLegendLayout(Styler.LegendLayout.Horizontal);
+        chart.getStyler().setYAxisLogarithmic(true);
+        chart.getStyler().setXAxisLogarithmic(true);
+        return chart;
     }
 
     private void createNormalisedChart(String scenario, String xAxisTitle, String yAxisTitle) {
 
         var dbNames = summaryStatisticsRepository.getAllDatabases();
         var list = summaryStatisticsRepository.findAllByNameAndType(scenario, DatabaseStatisticCollector.QUERY_TIME);
+        if (list.isEmpty()) {
+            return;
+        }
 
         XYChart chart = new XYChartBuilder().width(chartWidth).height(chartHeight)
                 .xAxisTitle(xAxisTitle)
@@ -245,6 +340,25 @@ public class Evaluation {
         Helper.savePdf(chart, scenario);
     }
 
+    private void createTailLatencyChart(String scenario) {
+        var list = summaryStatisticsRepository.findAllByNameAndType(scenario, DatabaseStatisticCollector.QUERY_TIME)
+                .stream().filter(s -> !s.unit().equals("error") && !Double.isNaN(s.p50())).toList();
+        if (list.isEmpty()) {
+            return;
+        }
+        var chart = configureCategoryChart("Database", "Log Query time [" + list.getFirst().unit() + "]");
+        chart.getStyler().setYAxisLogarithmic(true);
+
+        List<String> xData = list.stream().map(ScenarioStatisticsEntity::getDatabase).toList();
+        chart.addSeries("P50", xData, list.stream().map(ScenarioStatisticsEntity::p50).toList());
+        chart.addSeries("P90", xData, list.stream().map(ScenarioStatisticsEntity::p90).toList());
+        chart.addSeries("P99", xData, list.stream().map(ScenarioStatisticsEntity::p99).toList());
+        chart.addSeries("P99.9", xData, list.stream().map(ScenarioStatisticsEntity::p999).toList());
+        chart.addSeries("Max", xData, list.stream().map(ScenarioStatisticsEntity::max).toList());
+
+        Helper.savePdf(chart, "tail_latency_" + scenario);
+    }
+
     private CategoryChart configureCategoryChart(String xAxisTitle, String yAxisTitle) {
         CategoryChart chart = new CategoryChartBuilder().width(chartWidth).height(chartHeight)
                 .xAxisTitle(xAxisTitle)
@@ -305,25 +419,37 @@ public class Evaluation {
     }
 
 
+    private static final String[] STATISTICS_HEADER = new String[]{"Name", "Parameter", "Type", "Avg", "StDev", "P50", "P90", "P99", "P99.9", "Max", "Samples"};
+
     private static String formatStatistics(List<ScenarioStatisticsEntity> summaryStatistics) {
-        String[] header = new String[]{"Name", "Parameter", "Type", "Avg", "StDev", "Samples"};
+        String[] header = STATISTICS_HEADER;
 
         String[][] content = summaryStatistics.stream().sorted(Comparator.comparing(ScenarioStatisticsEntity::name)).map(Evaluation::getContentAsString).toArray(String[][]::new);
         return FlipTable.of(header, content);
     }
 
     private static String formatLatexStatistics(String caption, String label, List<ScenarioStatisticsEntity> summaryStatistics) {
-        String[] header = new String[]{"Name", "Parameter", "Type", "Avg", "StDev", "Samples"};
+        String[] header = STATISTICS_HEADER;
 
         String[][] content = summaryStatistics.stream().sorted(Comparator.comparing(ScenarioStatisticsEntity::name)).map(Evaluation::getContentAsString).toArray(String[][]::new);
-        return LatexTableGenerator.generateLongTable(caption, label, header, content, "|p{3cm}*{7}{|r}|");
+        return LatexTableGenerator.generateLongTable(caption, label, header, content, "|p{3cm}*{10}{|r}|");
     }
 
     private static String[] getContentAsString(ScenarioStatisticsEntity s) {
-        return new String[]{s.name(), s.getParam(), s.getType(), formatUnit(s.avg(), s.unit()), formatUnit(s.std(), s.unit()), s.sampleCount() + ""};
+        String param = s.getParam();
+        if (s.getConcurrency() != null) {
+            param += " (" + s.getConcurrency() + " clients, " + df.format(s.getThroughput()) + " queries/s)";
+        } else if (s.getTargetRate() != null) {
+            param += " (" + df.format(s.getTargetRate()) + " requests/s target, " + df.format(s.getThroughput()) + " achieved)";
+        }
+        return new String[]{s.name(), param, s.getType(), formatUnit(s.avg(), s.unit()), formatUnit(s.std(), s.unit()),
+                formatUnit(s.p50(), s.unit()), formatUnit(s.p90(), s.unit()), formatUnit(s.p99(), s.unit()), formatUnit(s.p999(), s.unit()), formatUnit(s.max(), s.unit()), s.sampleCount() + ""};
     }
 
     private static String formatUnit(double value, String unit) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
         if (unit.equals("bytes")) {
             return toHumanReadableWithEnum((long) value);
         }
@@ -399,7 +525,36 @@ public class Evaluation {
 
         std = Math.sqrt(std / (recordedResults.size() - 1));
 
-        return new SummaryStatistics(name, unit, statistics.getAverage(), recordedResults.getFirst(), statistics.getMin(), statistics.getMax(), std, recordedResults.size());
+        double[] sorted = recordedResults.stream().mapToDouble(i -> i).sorted().toArray();
+
+        return new SummaryStatistics(name, unit, statistics.getAverage(), recordedResults.getFirst(), statistics.getMin(), statistics.getMax(), std, recordedResults.size(),
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9));
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        // nearest rank method
+        int rank = (int) Math.ceil(percentile / 100d * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    public static SummaryStatistics calculateHistogramStatistics(String name, String unit, Histogram histogram, double first, double scale) {
+        long count = histogram.getTotalCount();
+        if (count == 0) {
+            return new SummaryStatistics(name, unit, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0);
+        }
+        // the histogram only knows the population deviation, the sample deviation is needed to be comparable to the list based statistics
+        double std = count > 1 ? histogram.getStdDeviation() * Math.sqrt(count / (count - 1d)) : Double.NaN;
+        return new SummaryStatistics(name, unit,
+                histogram.getMean() / scale,
+                first,
+                histogram.getMinValue() / scale,
+                histogram.getMaxValue() / scale,
+                std / scale,
+                (int) count,
+                histogram.getValueAtPercentile(50) / scale,
+                histogram.getValueAtPercentile(90) / scale,
+                histogram.getValueAtPercentile(99) / scale,
+                histogram.getValueAtPercentile(99.9) / scale);
     }
 
     public static int getSampleCount(double mean, double std, double confidenceLevel, double intervalSize) {
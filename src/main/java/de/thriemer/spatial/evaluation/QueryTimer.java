@@ -2,28 +2,50 @@ package de.thriemer.spatial.evaluation;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @NoArgsConstructor
 public class QueryTimer {
 
+    // slower queries are recorded as one hour, this keeps the memory of the histogram fixed
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+    public static final double NANOS_PER_UNIT = 1000_000d;
+
     @Getter
-    private final List<Double> recordedResults = new ArrayList<>();
-    private long start;
+    private final Histogram histogram = new ConcurrentHistogram(1, HIGHEST_TRACKABLE_NANOS, 3);
+    private final AtomicLong firstNanos = new AtomicLong(-1);
+    // every worker of the concurrent load mode times its own queries
+    private final ThreadLocal<long[]> start = ThreadLocal.withInitial(() -> new long[1]);
 
     public void start() {
-        start = System.nanoTime();
+        start.get()[0] = System.nanoTime();
     }
 
     public void end() {
-        double diff = (System.nanoTime() - start) / 1000_000d;
-        recordedResults.add(diff);
+        record(System.nanoTime() - start.get()[0]);
+    }
+
+    public void record(long nanos) {
+        long clamped = Math.max(1, Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+        firstNanos.compareAndSet(-1, clamped);
+        histogram.recordValue(clamped);
+    }
+
+    public long getSampleCount() {
+        return histogram.getTotalCount();
+    }
+
+    public double getFirst() {
+        return firstNanos.get() / NANOS_PER_UNIT;
     }
 
     public void resetAll() {
-        recordedResults.clear();
+        histogram.reset();
+        firstNanos.set(-1);
     }
 
     public String getUnit() {
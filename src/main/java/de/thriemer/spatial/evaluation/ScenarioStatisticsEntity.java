@@ -23,6 +23,11 @@ public class ScenarioStatisticsEntity extends SummaryStatistics implements Seria
     private String database;
     private String type;
 
+    // only set for runs of the concurrent load mode and the open loop driver
+    private Integer concurrency;
+    private Double throughput;
+    private Double targetRate;
+
     public ScenarioStatisticsEntity(String name, String unit, double avg, double first, double min, double max, double std, int sampleCount, String param, String database, String type) {
         super(name, unit, avg, first, min, max, std, sampleCount);
         this.param = param;
@@ -31,7 +36,30 @@ public class ScenarioStatisticsEntity extends SummaryStatistics implements Seria
     }
 
     public static ScenarioStatisticsEntity from(String db, String param, String type, SummaryStatistics s) {
-        return new ScenarioStatisticsEntity(s.name, s.unit, s.avg, s.first, s.min, s.max, s.std, s.sampleCount, param, db, type);
+        var entity = new ScenarioStatisticsEntity(s.name, s.unit, s.avg, s.first, s.min, s.max, s.std, s.sampleCount, param, db, type);
+        entity.copyPercentiles(s);
+        return entity;
+    }
+
+    private void copyPercentiles(SummaryStatistics s) {
+        this.p50 = s.p50;
+        this.p90 = s.p90;
+        this.p99 = s.p99;
+        this.p999 = s.p999;
+    }
+
+    public static ScenarioStatisticsEntity fromLoad(String db, String param, String type, SummaryStatistics s, int concurrency, double throughput) {
+        var entity = from(db, param, type, s);
+        entity.concurrency = concurrency;
+        entity.throughput = throughput;
+        return entity;
+    }
+
+    public static ScenarioStatisticsEntity fromOpenLoop(String db, String param, String type, SummaryStatistics s, double targetRate, double throughput) {
+        var entity = from(db, param, type, s);
+        entity.targetRate = targetRate;
+        entity.throughput = throughput;
+        return entity;
     }
 
     public boolean isValid() {
@@ -39,7 +67,12 @@ public class ScenarioStatisticsEntity extends SummaryStatistics implements Seria
     }
 
     public ScenarioStatisticsEntity clone() {
-        return new ScenarioStatisticsEntity(this.name, this.unit, this.avg, this.first, this.min, this.max, this.std, this.sampleCount, this.param, this.database, this.type);
+        var clone = new ScenarioStatisticsEntity(this.name, this.unit, this.avg, this.first, this.min, this.max, this.std, this.sampleCount, this.param, this.database, this.type);
+        clone.copyPercentiles(this);
+        clone.concurrency = this.concurrency;
+        clone.throughput = this.throughput;
+        clone.targetRate = this.targetRate;
+        return clone;
     }
 
 }
@@ -2,14 +2,12 @@ package de.thriemer.spatial.evaluation;
 
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.MappedSuperclass;
-import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
 import java.util.Objects;
 
 
 @NoArgsConstructor
-@AllArgsConstructor
 @MappedSuperclass
 @Embeddable
 public class SummaryStatistics {
@@ -24,6 +22,31 @@ public class SummaryStatistics {
     protected double max;
     protected double std;
     protected int sampleCount;
+    // boxed so rows recorded before the percentiles existed can still be loaded
+    protected Double p50;
+    protected Double p90;
+    protected Double p99;
+    protected Double p999;
+
+    public SummaryStatistics(String name, String unit, double avg, double first, double min, double max, double std, int sampleCount) {
+        this(name, unit, avg, first, min, max, std, sampleCount, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    public SummaryStatistics(String name, String unit, double avg, double first, double min, double max, double std, int sampleCount,
+                             double p50, double p90, double p99, double p999) {
+        this.name = name;
+        this.unit = unit;
+        this.avg = avg;
+        this.first = first;
+        this.min = min;
+        this.max = max;
+        this.std = std;
+        this.sampleCount = sampleCount;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
 
     public double coefficientOfVariation() {
         return std / avg;
@@ -69,22 +92,42 @@ public class SummaryStatistics {
         return sampleCount;
     }
 
+    public double p50() {
+        return orNaN(p50);
+    }
+
+    public double p90() {
+        return orNaN(p90);
+    }
+
+    public double p99() {
+        return orNaN(p99);
+    }
+
+    public double p999() {
+        return orNaN(p999);
+    }
+
+    private static double orNaN(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         if (obj == null || obj.getClass() != this.getClass()) return false;
         var that = (SummaryStatistics) obj;
-        return Objects.equals(this.name, that.name) && Objects.equals(this.unit, that.unit) && Double.doubleToLongBits(this.avg) == Double.doubleToLongBits(that.avg) && Double.doubleToLongBits(this.first) == Double.doubleToLongBits(that.first) && Double.doubleToLongBits(this.min) == Double.doubleToLongBits(that.min) && Double.doubleToLongBits(this.max) == Double.doubleToLongBits(that.max) && Double.doubleToLongBits(this.std) == Double.doubleToLongBits(that.std) && this.sampleCount == that.sampleCount;
+        return Objects.equals(this.name, that.name) && Objects.equals(this.unit, that.unit) && Double.doubleToLongBits(this.avg) == Double.doubleToLongBits(that.avg) && Double.doubleToLongBits(this.first) == Double.doubleToLongBits(that.first) && Double.doubleToLongBits(this.min) == Double.doubleToLongBits(that.min) && Double.doubleToLongBits(this.max) == Double.doubleToLongBits(that.max) && Double.doubleToLongBits(this.std) == Double.doubleToLongBits(that.std) && this.sampleCount == that.sampleCount && Double.doubleToLongBits(this.p50()) == Double.doubleToLongBits(that.p50()) && Double.doubleToLongBits(this.p90()) == Double.doubleToLongBits(that.p90()) && Double.doubleToLongBits(this.p99()) == Double.doubleToLongBits(that.p99()) && Double.doubleToLongBits(this.p999()) == Double.doubleToLongBits(that.p999());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, unit, avg, first, min, max, std, sampleCount);
+        return Objects.hash(name, unit, avg, first, min, max, std, sampleCount, p50(), p90(), p99(), p999());
     }
 
     @Override
     public String toString() {
-        return "SummaryStatistics[" + "name=" + name + ", " + "unit=" + unit + ", " + "avg=" + avg + ", " + "first=" + first + ", " + "min=" + min + ", " + "max=" + max + ", " + "std=" + std + ", " + "sampleCount=" + sampleCount + ']';
+        return "SummaryStatistics[" + "name=" + name + ", " + "unit=" + unit + ", " + "avg=" + avg + ", " + "first=" + first + ", " + "min=" + min + ", " + "max=" + max + ", " + "std=" + std + ", " + "sampleCount=" + sampleCount + ", " + "p50=" + p50() + ", " + "p90=" + p90() + ", " + "p99=" + p99() + ", " + "p99.9=" + p999() + ']';
     }
 
     public double standardError() {
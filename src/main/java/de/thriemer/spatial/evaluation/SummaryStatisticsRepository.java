@@ -21,6 +21,9 @@ public interface SummaryStatisticsRepository extends CrudRepository<ScenarioStat
     @Query("SELECT DISTINCT name FROM ScenarioStatisticsEntity")
     List<String> getScenarioNames();
 
+    @Query("SELECT DISTINCT name FROM ScenarioStatisticsEntity s where s.type=:type")
+    List<String> getScenarioNamesByType(String type);
+
     @Query("SELECT COUNT(s)>1 from ScenarioStatisticsEntity s where s.database=:database and s.name=:scenario and s.param=:param")
     boolean exists(String database, String scenario, String param);
 
@@ -0,0 +1,62 @@
+package de.thriemer.spatial.framework;
+
+import de.thriemer.spatial.evaluation.SummaryStatistics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ConcurrentLoadDriver {
+
+    final Settings settings;
+
+    public record LoadResult(SummaryStatistics latency, int clients, double throughput) {
+    }
+
+    public <T> LoadResult run(DatabaseAbstraction db, Scenario<T> scenario, T param, int clients, long durationMillis) throws ExecutionException, InterruptedException {
+        scenario.timer.resetAll();
+        List<DatabaseAbstraction> sessions = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            sessions.add(db.openSession());
+        }
+        log.info("Running '{}' with {} concurrent clients for {}", scenario.name, clients, Helper.sensiblePrint(durationMillis));
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Future<?>> workers = new ArrayList<>(clients);
+        try (ExecutorService executor = createExecutor(clients)) {
+            for (var session : sessions) {
+                workers.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        scenario.iterate(session, param);
+                    }
+                }));
+            }
+            for (var worker : workers) {
+                worker.get();
+            }
+        } finally {
+            sessions.forEach(DatabaseAbstraction::closeSession);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        // throughput is measured in timed queries, because some scenarios time multiple queries per iteration
+        double throughput = scenario.getSampleCount() / elapsedSeconds;
+        return new LoadResult(scenario.getResult(), clients, throughput);
+    }
+
+    private ExecutorService createExecutor(int clients) {
+        return settings.useVirtualThreads() ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(clients);
+    }
+
+}
@@ -2,18 +2,28 @@ package de.thriemer.spatial.framework;
 
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.benchmark.Page;
+import de.thriemer.spatial.benchmark.PointBatch;
+import de.thriemer.spatial.evaluation.QueryTimer;
 import io.vavr.Tuple2;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.testcontainers.containers.GenericContainer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public abstract class DatabaseAbstraction {
 
     protected List<String> createdTables = new ArrayList<>();
     protected GenericContainer<?> container;
+    // parts of the query time the adapter measures itself, keyed by the type they are stored with
+    protected Map<String, QueryTimer> timings = new ConcurrentHashMap<>();
+    // sizes the adapter measures itself, e.g. the bytes of a record on the wire, keyed by the type they are stored with
+    protected Map<String, List<Double>> sizes = new ConcurrentHashMap<>();
 
     public abstract String getName();
 
@@ -29,12 +39,37 @@ public abstract class DatabaseAbstraction {
 
     public abstract void persistMultiplePoints(String tableName, List<DataPoint> dataPoints);
 
+    public void persistMultiplePoints(String tableName, PointBatch batch) {
+        persistMultiplePoints(tableName, batch.asList());
+    }
+
+    // Bulk load mode, which uses the fastest ingest path of the database. bulkLoad can be called from multiple sessions
+    // at the same time, the points are only guaranteed to be visible to queries after finishBulkLoad.
+    public void startBulkLoad(String tableName) {
+    }
+
+    public void bulkLoad(String tableName, PointBatch batch) {
+        persistMultiplePoints(tableName, batch);
+    }
+
+    public void finishBulkLoad(String tableName) {
+    }
+
     public abstract void createIndex(String tableName, String... params);
 
     public abstract Page<DataPoint> fetchArea(String tableName, Geometry shape, int page, int pageSize);
 
     public abstract List<DataPoint> fetchArea(String tableName, Geometry shape);
 
+    // same as fetchArea but every point is passed to the sink as soon as it is read from the database instead of collecting all of them first
+    public abstract void streamArea(String tableName, Geometry shape, Consumer<DataPoint> sink);
+
+    public PointBatch fetchAreaBatch(String tableName, Geometry shape) {
+        PointBatch batch = new PointBatch(1024);
+        streamArea(tableName, shape, batch::add);
+        return batch;
+    }
+
     public abstract List<DataPoint> fetchArea(String tableName, Geometry contractPolygon, Geometry filter);
 
     public abstract List<DataPoint> fetchArea(String tableName, Geometry shape, String value, float greaterThan);
@@ -45,10 +80,32 @@ public abstract class DatabaseAbstraction {
 
     public abstract int count(String tableName);
 
+    // opens an independent client for one worker of the concurrent load mode, it shares the container with this instance
+    public abstract DatabaseAbstraction openSession();
+
+    public void closeSession() {
+    }
+
     public void cleanUp() {
         createdTables.forEach(this::dropTables);
         container.stop();
     }
 
     public abstract String getVolume();
+
+    protected QueryTimer timing(String type) {
+        return timings.computeIfAbsent(type, t -> new QueryTimer());
+    }
+
+    public Map<String, QueryTimer> getTimings() {
+        return timings;
+    }
+
+    protected void recordSize(String type, double bytes) {
+        sizes.computeIfAbsent(type, t -> Collections.synchronizedList(new ArrayList<>())).add(bytes);
+    }
+
+    public Map<String, List<Double>> getSizes() {
+        return sizes;
+    }
 }
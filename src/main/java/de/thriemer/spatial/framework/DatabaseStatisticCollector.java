@@ -1,6 +1,7 @@
 package de.thriemer.spatial.framework;
 
 import de.thriemer.spatial.evaluation.Evaluation;
+import de.thriemer.spatial.evaluation.QueryTimer;
 import de.thriemer.spatial.evaluation.ScenarioStatisticsEntity;
 import de.thriemer.spatial.evaluation.SummaryStatistics;
 import de.thriemer.spatial.evaluation.SummaryStatisticsRepository;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static de.thriemer.spatial.framework.Helper.sensiblePrint;
@@ -27,6 +29,8 @@ public class DatabaseStatisticCollector {
     public static final String CPU_USAGE = "CPU usage";
     public static final String MEMORY_USAGE = "Memory usage";
     public static final String DISK_USAGE = "Disk Usage";
+    public static final String LOAD_QUERY_TIME = "Query Time under load";
+    public static final String OPEN_LOOP_QUERY_TIME = "Query Time open loop";
 
     final Settings settings;
 
@@ -39,6 +43,8 @@ public class DatabaseStatisticCollector {
     final DatabaseAbstraction[] databaseAbstractions;
     final Scenario[] scenarios;
     final ResourceMonitor monitor;
+    final ConcurrentLoadDriver loadDriver;
+    final OpenLoopDriver openLoopDriver;
 
     @EventListener(ApplicationReadyEvent.class)
     public void collectStatistics() {
@@ -88,6 +94,9 @@ public class DatabaseStatisticCollector {
                 log.info("Skipping combination {} - {} - {} because there are already statistics for it", databaseAbstraction.getName(), scenario.name, toString(p));
                 continue;
             }
+            // reset before prepare, so e.g. the build time of the index is stored with the run that created it
+            databaseAbstraction.getTimings().values().forEach(QueryTimer::resetAll);
+            databaseAbstraction.getSizes().values().forEach(List::clear);
             scenario.prepare(databaseAbstraction);
             monitor.mark(databaseAbstraction.getName(), p, scenario.name, ResourceMonitor.TimeMark.Event.START);
             try {
@@ -125,6 +134,22 @@ public class DatabaseStatisticCollector {
 
                 var benchmarkResult = scenario.getResult();
                 repository.save(ScenarioStatisticsEntity.from(databaseAbstraction.getName(), toString(p), QUERY_TIME, benchmarkResult));
+                for (var additionalResult : ((Map<String, SummaryStatistics>) scenario.getAdditionalResults()).entrySet()) {
+                    repository.save(ScenarioStatisticsEntity.from(databaseAbstraction.getName(), toString(p), additionalResult.getKey(), additionalResult.getValue()));
+                }
+                for (var timing : databaseAbstraction.getTimings().entrySet()) {
+                    QueryTimer timer = timing.getValue();
+                    if (timer.getSampleCount() > 0) {
+                        repository.save(ScenarioStatisticsEntity.from(databaseAbstraction.getName(), toString(p), timing.getKey(),
+                                Evaluation.calculateHistogramStatistics(scenario.name, timer.getUnit(), timer.getHistogram(), timer.getFirst(), QueryTimer.NANOS_PER_UNIT)));
+                    }
+                }
+                for (var size : databaseAbstraction.getSizes().entrySet()) {
+                    if (!size.getValue().isEmpty()) {
+                        repository.save(ScenarioStatisticsEntity.from(databaseAbstraction.getName(), toString(p), size.getKey(),
+                                Evaluation.calculateArithmeticStatistics(scenario.name, "bytes", new ArrayList<>(size.getValue()))));
+                    }
+                }
             } catch (Exception x) {
                 log.warn("{} failed because of {}", scenario.name, x.getMessage());
                 x.printStackTrace();
@@ -134,6 +159,17 @@ public class DatabaseStatisticCollector {
             scenario.cleanup(databaseAbstraction);
             monitor.mark(databaseAbstraction.getName(), p, scenario.name, ResourceMonitor.TimeMark.Event.STOP);
             persistResourceStatistics(databaseAbstraction, scenario.name, p);
+            // the load runs happen after the resource statistics so they don't distort the single client measurements
+            if (!settings.concurrentClients().isEmpty() && scenario.supportsConcurrentLoad()) {
+                for (int clients : settings.concurrentClients()) {
+                    runUnderLoad(databaseAbstraction, scenario, p, clients);
+                }
+                scenario.cleanup(databaseAbstraction);
+            }
+            if (settings.openLoopStartRate() > 0 && scenario instanceof OpenLoopScenario) {
+                runOpenLoop(databaseAbstraction, scenario, p);
+                scenario.cleanup(databaseAbstraction);
+            }
             System.gc();
         }
 
@@ -141,6 +177,40 @@ public class DatabaseStatisticCollector {
     }
 
 
+    private void runUnderLoad(DatabaseAbstraction databaseAbstraction, Scenario scenario, Object p, int clients) {
+        try {
+            databaseAbstraction.getTimings().values().forEach(QueryTimer::resetAll);
+            var result = loadDriver.run(databaseAbstraction, scenario, p, clients, fastLane ? 30_000 : 60_000);
+            log.info("{} concurrent clients reached {} queries/s with an average latency of {} {}", clients, Evaluation.df.format(result.throughput()), Evaluation.df.format(result.latency().avg()), result.latency().unit());
+            repository.save(ScenarioStatisticsEntity.fromLoad(databaseAbstraction.getName(), toString(p), LOAD_QUERY_TIME, result.latency(), clients, result.throughput()));
+            // e.g. the pool wait time shows whether the clients were limited by the database or by the connections
+            for (var timing : databaseAbstraction.getTimings().entrySet()) {
+                QueryTimer timer = timing.getValue();
+                if (timer.getSampleCount() > 0) {
+                    repository.save(ScenarioStatisticsEntity.fromLoad(databaseAbstraction.getName(), toString(p), timing.getKey() + " under load",
+                            Evaluation.calculateHistogramStatistics(scenario.name, timer.getUnit(), timer.getHistogram(), timer.getFirst(), QueryTimer.NANOS_PER_UNIT), clients, Double.NaN));
+                }
+            }
+        } catch (Exception x) {
+            log.warn("{} with {} concurrent clients failed because of {}", scenario.name, clients, x.getMessage());
+            x.printStackTrace();
+            var benchmarkResult = new SummaryStatistics(scenario.name, SummaryStatistics.ERROR_IN_RUN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0);
+            repository.save(ScenarioStatisticsEntity.fromLoad(databaseAbstraction.getName(), toString(p), LOAD_QUERY_TIME, benchmarkResult, clients, Double.NaN));
+        }
+    }
+
+    private void runOpenLoop(DatabaseAbstraction databaseAbstraction, Scenario scenario, Object p) {
+        try {
+            List<OpenLoopDriver.RateResult> results = openLoopDriver.sweep(databaseAbstraction, (Scenario & OpenLoopScenario) scenario, p, fastLane ? 15_000 : 30_000);
+            repository.saveAll(results.stream()
+                    .map(r -> ScenarioStatisticsEntity.fromOpenLoop(databaseAbstraction.getName(), toString(p), OPEN_LOOP_QUERY_TIME, r.latency(), r.targetRate(), r.achievedRate()))
+                    .toList());
+        } catch (Exception x) {
+            log.warn("{} with open loop driver failed because of {}", scenario.name, x.getMessage());
+            x.printStackTrace();
+        }
+    }
+
     private void persistResourceStatistics(DatabaseAbstraction db, String scenario, Object param) {
         long amount = monitor.getDiskUsage(db);
         SummaryStatistics diskUsage = new SummaryStatistics(scenario, "bytes", amount, amount, amount, amount, 0, 3);
@@ -1,6 +1,7 @@
 package de.thriemer.spatial.framework;
 
 import de.thriemer.spatial.benchmark.DataPoint;
+import de.thriemer.spatial.benchmark.TagEncoder;
 import org.knowm.xchart.VectorGraphicsEncoder;
 import org.knowm.xchart.internal.chartpart.Chart;
 import org.locationtech.jts.geom.Coordinate;
@@ -99,7 +100,7 @@ public class Helper {
                           "type":"Point"
                        }
                     }
-                """.formatted(color, point.tags(), point.someFloat(), point.longitude(), point.latitude());
+                """.formatted(color, new TagEncoder(TagEncoder.Escaping.GEOJSON).escape(point.tags()), point.someFloat(), point.longitude(), point.latitude());
     }
 
 }
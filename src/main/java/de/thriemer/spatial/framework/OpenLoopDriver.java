@@ -0,0 +1,111 @@
+package de.thriemer.spatial.framework;
+
+import de.thriemer.spatial.evaluation.Evaluation;
+import de.thriemer.spatial.evaluation.QueryTimer;
+import de.thriemer.spatial.evaluation.SummaryStatistics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OpenLoopDriver {
+
+    // a rate counts as saturated if less than 90% of the requests per second are completed
+    private static final double SATURATION_THRESHOLD = 0.9;
+    // stop issuing requests if this many requests per session are waiting, the database can't keep up anyway
+    private static final int MAX_BACKLOG_PER_SESSION = 10;
+
+    final Settings settings;
+
+    public record RateResult(double targetRate, double achievedRate, SummaryStatistics latency, boolean saturated) {
+    }
+
+    public <T, S extends Scenario<T> & OpenLoopScenario<T>> List<RateResult> sweep(DatabaseAbstraction db, S scenario, T param, long stepMillis) throws InterruptedException {
+        int sessionCount = settings.openLoopSessions();
+        List<DatabaseAbstraction> sessions = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            sessions.add(db.openSession());
+        }
+        BlockingQueue<DatabaseAbstraction> idleSessions = new ArrayBlockingQueue<>(sessionCount, false, sessions);
+
+        List<RateResult> results = new ArrayList<>();
+        try {
+            double rate = settings.openLoopStartRate();
+            while (rate <= settings.openLoopMaxRate()) {
+                var result = runAtRate(scenario, param, idleSessions, rate, stepMillis);
+                log.info("Target rate {}/s: achieved {}/s, p99 {} {}", Evaluation.df.format(rate), Evaluation.df.format(result.achievedRate()),
+                        Evaluation.df.format(result.latency().p99()), result.latency().unit());
+                results.add(result);
+                if (result.saturated()) {
+                    log.info("'{}' is saturated at {} requests/s", db.getName(), Evaluation.df.format(result.achievedRate()));
+                    break;
+                }
+                rate *= 2;
+            }
+        } finally {
+            sessions.forEach(DatabaseAbstraction::closeSession);
+        }
+        return results;
+    }
+
+    private <T, S extends Scenario<T> & OpenLoopScenario<T>> RateResult runAtRate(S scenario, T param, BlockingQueue<DatabaseAbstraction> idleSessions, double rate, long stepMillis) throws InterruptedException {
+        QueryTimer timer = new QueryTimer();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long requestCount = Math.max(1, (long) (rate * stepMillis / 1000d));
+        long maxBacklog = (long) settings.openLoopSessions() * MAX_BACKLOG_PER_SESSION;
+        boolean backlogExceeded = false;
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requestCount && failure.get() == null; i++) {
+                if (i - timer.getSampleCount() > maxBacklog) {
+                    backlogExceeded = true;
+                    break;
+                }
+                Consumer<DatabaseAbstraction> request = scenario.createRequest(param);
+                long intendedStart = start + i * interval;
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                executor.execute(() -> {
+                    DatabaseAbstraction session = null;
+                    try {
+                        session = idleSessions.take();
+                        request.accept(session);
+                        // measured from the intended start, so the time a request waits for a busy database counts as latency
+                        timer.record(System.nanoTime() - intendedStart);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        if (session != null) {
+                            idleSessions.add(session);
+                        }
+                    }
+                });
+            }
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException(failure.get());
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        double achievedRate = timer.getSampleCount() / elapsedSeconds;
+        var latency = Evaluation.calculateHistogramStatistics(scenario.name, timer.getUnit(), timer.getHistogram(), timer.getFirst(), QueryTimer.NANOS_PER_UNIT);
+        return new RateResult(rate, achievedRate, latency, backlogExceeded || achievedRate < rate * SATURATION_THRESHOLD);
+    }
+
+}
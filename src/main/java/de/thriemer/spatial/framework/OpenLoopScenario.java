@@ -0,0 +1,11 @@
+package de.thriemer.spatial.framework;
+
+import java.util.function.Consumer;
+
+// a scenario whose requests can be issued independently of each other, so the open loop driver can start them at a fixed rate
+public interface OpenLoopScenario<T> {
+
+    // creates a single request for the open loop driver, which executes and times it on one of its sessions
+    Consumer<DatabaseAbstraction> createRequest(T param);
+
+}
@@ -6,7 +6,7 @@ import de.thriemer.spatial.evaluation.SummaryStatistics;
 import lombok.RequiredArgsConstructor;
 
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
 
 @RequiredArgsConstructor
 public abstract class Scenario<T> {
@@ -25,12 +25,22 @@ public abstract class Scenario<T> {
     public void cleanup(DatabaseAbstraction database) {
     }
 
+    // the concurrent load driver calls iterate on this instance from all clients at the same time
+    public boolean supportsConcurrentLoad() {
+        return true;
+    }
+
     public SummaryStatistics getResult() {
-        return Evaluation.calculateArithmeticStatistics(name, timer.getUnit(), timer.getRecordedResults());
+        return Evaluation.calculateHistogramStatistics(name, timer.getUnit(), timer.getHistogram(), timer.getFirst(), QueryTimer.NANOS_PER_UNIT);
+    }
+
+    // results besides the query time, keyed by the type they are stored with
+    public Map<String, SummaryStatistics> getAdditionalResults() {
+        return Map.of();
     }
 
     public int getSampleCount(){
-        return timer.getRecordedResults().size();
+        return (int) timer.getSampleCount();
     }
 
 }
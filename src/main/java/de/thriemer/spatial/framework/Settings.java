@@ -4,6 +4,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.List;
+
 @RequiredArgsConstructor
 @Component
 public class Settings {
@@ -18,4 +21,120 @@ public class Settings {
         return environment.containsProperty("clean-faulty-runs");
     }
 
+    // e.g. --concurrent-clients=50,100,200 runs every scenario additionally with 50, 100 and 200 parallel clients
+    public List<Integer> concurrentClients() {
+        String clients = environment.getProperty("concurrent-clients");
+        if (clients == null || clients.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(clients.split(",")).map(String::trim).map(Integer::parseInt).toList();
+    }
+
+    public boolean useVirtualThreads() {
+        return environment.containsProperty("virtual-threads");
+    }
+
+    // e.g. --open-loop-rate=50 sweeps the request rate of the open loop driver from 50 requests/s upwards until the database saturates
+    public double openLoopStartRate() {
+        return environment.getProperty("open-loop-rate", Double.class, 0d);
+    }
+
+    public double openLoopMaxRate() {
+        return environment.getProperty("open-loop-max-rate", Double.class, 10_000d);
+    }
+
+    public int openLoopSessions() {
+        return environment.getProperty("open-loop-sessions", Integer.class, 64);
+    }
+
+    // e.g. --postgis-prepared-statements runs the PostGIS queries as cached prepared statements with the query shape bound as WKB
+    public boolean postgisPreparedStatements() {
+        return environment.containsProperty("postgis-prepared-statements");
+    }
+
+    // e.g. --postgis-result-decoding=wkb reads the PostGIS points as binary WKB, coordinates reads ST_X and ST_Y and text parses the default text representation
+    public String postgisResultDecoding() {
+        return environment.getProperty("postgis-result-decoding", "text");
+    }
+
+    // e.g. --postgis-pool-size=16 lets all PostGIS sessions borrow their connections from one pool of 16 connections
+    public int postgisPoolSize() {
+        return environment.getProperty("postgis-pool-size", Integer.class, 0);
+    }
+
+    // number of prepared statements the JDBC driver keeps per PostGIS connection
+    public int postgisStatementCacheSize() {
+        return environment.getProperty("postgis-statement-cache-size", Integer.class, 256);
+    }
+
+    // e.g. --postgis-pagination=keyset pages through the PostGIS results by seeking past the last key, offset uses OFFSET and cursor a scroll cursor
+    public String postgisPagination() {
+        return environment.getProperty("postgis-pagination", "cursor");
+    }
+
+    // e.g. --postgis-layout=curve-brin orders the PostGIS tables along a space filling curve and indexes them with BRIN, curve uses GiST and cluster clusters on the GiST index
+    public String postgisLayout() {
+        return environment.getProperty("postgis-layout", "cluster");
+    }
+
+    // e.g. --postgis-partitions=16 hash partitions the PostGIS point tables into 16 partitions by the S2 cell of the points
+    public int postgisPartitions() {
+        return environment.getProperty("postgis-partitions", Integer.class, 0);
+    }
+
+    // e.g. --opensearch-query-strategy=filter runs the OpenSearch area queries in filter context with a bounding box prefilter, shape uses geo_shape and polygon geo_polygon
+    public String opensearchQueryStrategy() {
+        return environment.getProperty("opensearch-query-strategy", "polygon");
+    }
+
+    // e.g. --opensearch-retrieval=docvalues reads pos, point_id and some_float from the doc values instead of the _source, docvalues-without-tags skips the tags
+    public String opensearchRetrieval() {
+        return environment.getProperty("opensearch-retrieval", "source");
+    }
+
+    // e.g. --opensearch-pagination=pit pages through the OpenSearch results of one point in time and skips unseen pages by their sort values
+    public String opensearchPagination() {
+        return environment.getProperty("opensearch-pagination", "search-after");
+    }
+
+    // e.g. --aerospike-layout=primitive stores lon and lat as double bins next to the GeoJSON bin and only reads the primitive bins, primitive-without-tags also skips the tags
+    public String aerospikeLayout() {
+        return environment.getProperty("aerospike-layout", "geojson");
+    }
+
+    // e.g. --aerospike-query-threads=8 splits the partitions of an Aerospike area query between 8 threads instead of one query
+    public int aerospikeQueryThreads() {
+        return environment.getProperty("aerospike-query-threads", Integer.class, 0);
+    }
+
+    // e.g. --aerospike-max-concurrent-nodes=1 limits the nodes a query reads from at the same time, 0 reads from all of them
+    public int aerospikeMaxConcurrentNodes() {
+        return environment.getProperty("aerospike-max-concurrent-nodes", Integer.class, 0);
+    }
+
+    // e.g. --aerospike-record-queue-size=20000 sets the records a query buffers before the node threads wait for the consumer
+    public int aerospikeRecordQueueSize() {
+        return environment.getProperty("aerospike-record-queue-size", Integer.class, 5_000);
+    }
+
+    // e.g. --aerospike-page-cache-size=64 bounds the cached pages and partition checkpoints of the Aerospike pagination to 64 MB
+    public long aerospikePageCacheSize() {
+        return environment.getProperty("aerospike-page-cache-size", Long.class, 256L);
+    }
+
+    // e.g. --aerospike-index=s2 indexes the S2 cell id of the Aerospike points and queries the ranges of the covering cells instead of the geo index
+    public String aerospikeIndex() {
+        return environment.getProperty("aerospike-index", "geo");
+    }
+
+    // e.g. --opensearch-export-slices=4 reads large OpenSearch results with 4 concurrent slices of a point in time instead of one scroll
+    public int opensearchExportSlices() {
+        return environment.getProperty("opensearch-export-slices", Integer.class, 0);
+    }
+
+    // e.g. --opensearch-export-batch-size=5000 sets the hits per search_after request of a slice
+    public int opensearchExportBatchSize() {
+        return environment.getProperty("opensearch-export-batch-size", Integer.class, 10_000);
+    }
+
 }
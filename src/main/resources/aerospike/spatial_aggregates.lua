@@ -0,0 +1,49 @@
+-- Count and bounding box of the points in a query, every server node only returns its reduced summary.
+-- The primitive layout stores lon and lat as bins, otherwise the coordinates are read from the GeoJSON of pos.
+
+local function coordinates(rec)
+    local lon = rec['lon']
+    local lat = rec['lat']
+    if lon == nil then
+        local x, y = string.match(tostring(rec['pos']), '%[%s*([^,%s]+)%s*,%s*([^%]%s]+)%s*%]')
+        lon = tonumber(x)
+        lat = tonumber(y)
+    end
+    return lon, lat
+end
+
+local function add(summary, rec)
+    local lon, lat = coordinates(rec)
+    if summary['count'] == 0 then
+        summary['min_lon'] = lon
+        summary['max_lon'] = lon
+        summary['min_lat'] = lat
+        summary['max_lat'] = lat
+    else
+        summary['min_lon'] = math.min(summary['min_lon'], lon)
+        summary['max_lon'] = math.max(summary['max_lon'], lon)
+        summary['min_lat'] = math.min(summary['min_lat'], lat)
+        summary['max_lat'] = math.max(summary['max_lat'], lat)
+    end
+    summary['count'] = summary['count'] + 1
+    return summary
+end
+
+local function merge(a, b)
+    if a['count'] == 0 then
+        return b
+    end
+    if b['count'] == 0 then
+        return a
+    end
+    a['min_lon'] = math.min(a['min_lon'], b['min_lon'])
+    a['max_lon'] = math.max(a['max_lon'], b['max_lon'])
+    a['min_lat'] = math.min(a['min_lat'], b['min_lat'])
+    a['max_lat'] = math.max(a['max_lat'], b['max_lat'])
+    a['count'] = a['count'] + b['count']
+    return a
+end
+
+function count_and_bounds(stream)
+    return stream : aggregate(map{count = 0}, add) : reduce(merge)
+end
@@ -0,0 +1,102 @@
+package de.thriemer.spatial;
+
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.PartitionStatus;
+import de.thriemer.spatial.AerospikeDatabase.PageCache;
+import de.thriemer.spatial.AerospikeDatabase.PageKey;
+import de.thriemer.spatial.AerospikeDatabase.Position;
+import de.thriemer.spatial.AerospikeDatabase.QueryKey;
+import de.thriemer.spatial.benchmark.DataPoint;
+import de.thriemer.spatial.benchmark.Page;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AerospikePageCacheTest {
+
+    private static final QueryKey QUERY = new QueryKey("table", 42, 10);
+
+    // 10 points without tags, 640 bytes
+    private static Page<DataPoint> page(int number) {
+        List<DataPoint> points = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            points.add(new DataPoint(i, i, number * 10 + i, 0f, ""));
+        }
+        return new Page<>(number, 100, points);
+    }
+
+    private static PageKey key(int page) {
+        return new PageKey(QUERY, page);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        PageCache cache = new PageCache(2_000);
+        cache.putPage(key(0), page(0));
+        cache.putPage(key(1), page(1));
+        cache.putPage(key(2), page(2));
+        assertEquals(3 * 640, cache.bytes());
+
+        // page 0 was used after page 1, so page 1 is evicted for page 3
+        assertNotNull(cache.page(key(0)));
+        cache.putPage(key(3), page(3));
+
+        assertNull(cache.page(key(1)));
+        assertEquals(page(0).data, cache.page(key(0)).data);
+        assertNotNull(cache.page(key(2)));
+        assertNotNull(cache.page(key(3)));
+        assertEquals(3 * 640, cache.bytes());
+    }
+
+    @Test
+    void replacingAnEntryCountsItOnce() {
+        PageCache cache = new PageCache(2_000);
+        cache.putPage(key(0), page(0));
+        cache.putPage(key(0), page(0));
+        assertEquals(640, cache.bytes());
+
+        cache.clear();
+        assertEquals(0, cache.bytes());
+        assertNull(cache.page(key(0)));
+    }
+
+    @Test
+    void evictsAnEntryLargerThanTheCache() {
+        PageCache cache = new PageCache(1_000);
+        cache.putPage(key(0), page(0));
+
+        Page<DataPoint> large = new Page<>(1, 100, new ArrayList<>(page(1).data));
+        large.data.addAll(page(2).data);
+        cache.putPage(key(1), large);
+
+        // the older page goes first, then the new page itself
+        assertNull(cache.page(key(0)));
+        assertNull(cache.page(key(1)));
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void checkpointsAreCopiedOnRead() {
+        PageCache cache = new PageCache(1 << 20);
+        PartitionFilter filter = PartitionFilter.all();
+        filter.setPartitions(new PartitionStatus[]{new PartitionStatus(7)});
+        cache.putCheckpoint(key(1), new Position(3, filter));
+        assertTrue(cache.bytes() > 0);
+
+        // neither the stored filter nor a read copy changes the checkpoint
+        filter.getPartitions()[0].bval = 99;
+        Position first = cache.checkpoint(key(1));
+        first.partitions().getPartitions()[0].bval = 42;
+        Position second = cache.checkpoint(key(1));
+
+        assertEquals(3, second.cell());
+        assertEquals(7, second.partitions().getPartitions()[0].id);
+        assertEquals(0, second.partitions().getPartitions()[0].bval);
+        assertNotSame(first.partitions(), second.partitions());
+        assertNull(cache.checkpoint(key(2)));
+    }
+
+}
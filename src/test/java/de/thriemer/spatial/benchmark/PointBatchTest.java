@@ -0,0 +1,42 @@
+package de.thriemer.spatial.benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PointBatchTest {
+
+    private static PointBatch batch(int points) {
+        PointBatch batch = new PointBatch(points);
+        for (int i = 0; i < points; i++) {
+            batch.add(i, -i, i, i / 2f, "tag " + i);
+        }
+        return batch;
+    }
+
+    @Test
+    void slicesAreReadOnly() {
+        PointBatch batch = batch(10);
+        DataPoint point = new DataPoint(1, 2, 99, 3f, "new");
+
+        assertThrows(UnsupportedOperationException.class, () -> batch.slice(0, 5).add(point));
+        assertThrows(UnsupportedOperationException.class, () -> batch.slice(0, 5).clear());
+        assertThrows(UnsupportedOperationException.class, () -> batch.slice(5, 10).add(point));
+        assertThrows(UnsupportedOperationException.class, () -> batch.slice(0, 5).slice(0, 2).add(point));
+
+        assertEquals(10, batch.size());
+        assertEquals(new DataPoint(5, -5, 5, 2.5f, "tag 5"), batch.get(5));
+    }
+
+    @Test
+    void slicesShareThePoints() {
+        PointBatch batch = batch(10);
+        PointBatch slice = batch.slice(3, 8).slice(1, 3);
+
+        assertEquals(2, slice.size());
+        assertEquals(batch.get(4), slice.get(0));
+        assertEquals("tag 5", slice.tags(1));
+    }
+
+}
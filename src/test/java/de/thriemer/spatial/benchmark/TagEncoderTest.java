@@ -0,0 +1,36 @@
+package de.thriemer.spatial.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TagEncoderTest {
+
+    @Test
+    void csvEncodingMatchesRegexReplacement() {
+        List<Tag> tags = List.of(
+                new Tag("name", "a||b,,c\"\"d\n\ne"),
+                new Tag("note", "|\n|,\n,\"\n\""),
+                new Tag("ref", "plain value"),
+                new Tag("", ""));
+        String expected = tags.stream().map(Tag::toString).collect(Collectors.joining(" "))
+                .replaceAll("\\|+", "-")
+                .replaceAll(",+", " ")
+                .replaceAll("\"+", "'")
+                .replaceAll("\n+", "");
+
+        assertEquals(expected, new TagEncoder(TagEncoder.Escaping.ADX_CSV).encode(tags));
+    }
+
+    @Test
+    void geoJsonEscaping() {
+        var encoder = new TagEncoder(TagEncoder.Escaping.GEOJSON);
+        assertEquals("Tag('a'='\\\"b\\\\\\n\\u0001')", encoder.encode(List.of(new Tag("a", "\"b\\\n\u0001"))));
+        assertEquals("x\\ty", encoder.escape("x\ty"));
+    }
+
+}
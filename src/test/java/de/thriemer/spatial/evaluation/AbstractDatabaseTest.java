@@ -4,10 +4,14 @@ import de.thriemer.spatial.PostGisDatabase;
 import de.thriemer.spatial.benchmark.DataGenerator;
 import de.thriemer.spatial.benchmark.DataPoint;
 import de.thriemer.spatial.benchmark.Page;
+import de.thriemer.spatial.benchmark.PointBatch;
 import de.thriemer.spatial.benchmark.scenarios.Parameters;
+import de.thriemer.spatial.framework.DataType;
 import de.thriemer.spatial.framework.DatabaseAbstraction;
 import de.thriemer.spatial.framework.DatabaseStatisticCollector;
 import de.thriemer.spatial.framework.Helper;
+import de.thriemer.spatial.framework.Settings;
+import io.vavr.Tuple2;
 import me.tongfei.progressbar.ProgressBar;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterAll;
@@ -16,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -36,6 +41,15 @@ public abstract class AbstractDatabaseTest<T extends DatabaseAbstraction> {
 
     abstract T instantiateDatabase();
 
+    // the settings of a non-default database mode, e.g. settings("postgis-pagination", "keyset"), flags take an empty value
+    static Settings settings(String... properties) {
+        MockEnvironment environment = new MockEnvironment();
+        for (int i = 0; i < properties.length; i += 2) {
+            environment.setProperty(properties[i], properties[i + 1]);
+        }
+        return new Settings(environment);
+    }
+
     @BeforeEach
     void init() {
         DatabaseStatisticCollector.fastLane = true;
@@ -70,6 +84,11 @@ public abstract class AbstractDatabaseTest<T extends DatabaseAbstraction> {
         );
     }
 
+    @Test
+    void count() {
+        assertEquals(reference.count(tableName), cut.count(tableName));
+    }
+
 
     @Test
     void fetchArea() {
@@ -99,6 +118,69 @@ public abstract class AbstractDatabaseTest<T extends DatabaseAbstraction> {
         }
     }
 
+    @Test
+    void streamArea() {
+        var generator = new DataGenerator(new Random().nextLong());
+        double radius = 0.01;
+        var bb = reference.getDataBoundingBox(tableName, "pos");
+
+        int maxSteps = 100;
+        ProgressBar progressBar = new ProgressBar("Test Run", maxSteps);
+
+        for (int i = 0; i < maxSteps; i++) {
+            double lon = generator.generateInRange(bb.getMinX() + radius, bb.getMaxX() - radius);
+            double lat = generator.generateInRange(bb.getMinY() + radius, bb.getMaxY() - radius);
+            Geometry queryShape = generateCircle(lon, lat, radius, 100);
+
+            List<DataPoint> points = cut.fetchArea(tableName, queryShape);
+            List<DataPoint> actual = new ArrayList<>();
+            cut.streamArea(tableName, queryShape, actual::add);
+
+            assertEqualsIgnoreOrder(points, actual, queryShape);
+            progressBar.step();
+        }
+    }
+
+    @Test
+    void fetchAreaBatch() {
+        var generator = new DataGenerator(new Random().nextLong());
+        double radius = 0.01;
+        var bb = reference.getDataBoundingBox(tableName, "pos");
+
+        int maxSteps = 100;
+        ProgressBar progressBar = new ProgressBar("Test Run", maxSteps);
+
+        for (int i = 0; i < maxSteps; i++) {
+            double lon = generator.generateInRange(bb.getMinX() + radius, bb.getMaxX() - radius);
+            double lat = generator.generateInRange(bb.getMinY() + radius, bb.getMaxY() - radius);
+            Geometry queryShape = generateCircle(lon, lat, radius, 100);
+
+            List<DataPoint> points = reference.fetchArea(tableName, queryShape);
+            List<DataPoint> actual = new ArrayList<>(cut.fetchAreaBatch(tableName, queryShape).asList());
+
+            assertEqualsIgnoreOrder(points, actual, queryShape);
+            progressBar.step();
+        }
+    }
+
+    @Test
+    void bulkLoad() {
+        String bulkTable = "bulk_test_table";
+        var generator = new DataGenerator(new Random().nextLong());
+        PointBatch points = new PointBatch(25_000);
+        for (int i = 0; i < 25_000; i++) {
+            points.add(generator.generateDataPoint(5, 15, 45, 55));
+        }
+        cut.createTable(bulkTable, new Tuple2<>("pos", DataType.GEO_POINT), new Tuple2<>("point_id", DataType.INT), new Tuple2<>("some_float", DataType.DOUBLE), new Tuple2<>("tags", DataType.STRING));
+        cut.startBulkLoad(bulkTable);
+        cut.bulkLoad(bulkTable, points.slice(0, 10_000));
+        cut.bulkLoad(bulkTable, points.slice(10_000, 25_000));
+        cut.finishBulkLoad(bulkTable);
+
+        assertEquals(25_000, cut.count(bulkTable));
+        cut.dropTables(bulkTable);
+    }
+
     @Test
     void fetchAreaMultiStep() {
         var generator = new DataGenerator(new Random().nextLong());
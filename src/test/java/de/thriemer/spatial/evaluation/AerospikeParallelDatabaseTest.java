@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.AerospikeDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the partitions queried by 8 threads against the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AerospikeParallelDatabaseTest extends AbstractDatabaseTest<AerospikeDatabase> {
+    @Override
+    AerospikeDatabase instantiateDatabase() {
+        AerospikeDatabase database = new AerospikeDatabase();
+        database.setSettings(settings("aerospike-query-threads", "8"));
+        return database;
+    }
+}
@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.AerospikeDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the points read from the lon and lat bins against the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AerospikePrimitiveDatabaseTest extends AbstractDatabaseTest<AerospikeDatabase> {
+    @Override
+    AerospikeDatabase instantiateDatabase() {
+        AerospikeDatabase database = new AerospikeDatabase();
+        database.setSettings(settings("aerospike-layout", "primitive"));
+        return database;
+    }
+}
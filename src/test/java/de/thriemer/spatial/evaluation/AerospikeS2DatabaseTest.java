@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.AerospikeDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the ranges of the covering cells refined with JTS, and the pages read cell by cell, against the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AerospikeS2DatabaseTest extends AbstractDatabaseTest<AerospikeDatabase> {
+    @Override
+    AerospikeDatabase instantiateDatabase() {
+        AerospikeDatabase database = new AerospikeDatabase();
+        database.setSettings(settings("aerospike-index", "s2"));
+        return database;
+    }
+}
@@ -1,6 +1,11 @@
 package de.thriemer.spatial.evaluation;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class EvaluationTest {
@@ -19,4 +24,26 @@ class EvaluationTest {
         assertTrue(Math.abs(interval.getMax() - 21.487) < 0.005);
     }
 
-}
\ No newline at end of file
+    @Test
+    void histogramStatisticsMatchArithmeticStatistics() {
+        QueryTimer timer = new QueryTimer();
+        List<Double> millis = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            timer.record(i * 1000_000L);
+            millis.add((double) i);
+        }
+
+        var expected = Evaluation.calculateArithmeticStatistics("test", "ms", millis);
+        var actual = Evaluation.calculateHistogramStatistics("test", "ms", timer.getHistogram(), timer.getFirst(), QueryTimer.NANOS_PER_UNIT);
+
+        assertEquals(1000, actual.sampleCount());
+        assertEquals(expected.first(), actual.first(), 0.001);
+        assertEquals(expected.avg(), actual.avg(), expected.avg() * 0.001);
+        assertEquals(expected.std(), actual.std(), expected.std() * 0.001);
+        assertEquals(expected.p50(), actual.p50(), expected.p50() * 0.001);
+        assertEquals(expected.p99(), actual.p99(), expected.p99() * 0.001);
+        assertEquals(expected.p999(), actual.p999(), expected.p999() * 0.001);
+        assertEquals(expected.max(), actual.max(), expected.max() * 0.001);
+    }
+
+}
@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.OpenSearchDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the points decoded from the doc values against the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OpenSearchDocValuesDatabaseTest extends AbstractDatabaseTest<OpenSearchDatabase> {
+    @Override
+    OpenSearchDatabase instantiateDatabase() {
+        OpenSearchDatabase database = new OpenSearchDatabase();
+        database.setSettings(settings("opensearch-retrieval", "docvalues"));
+        return database;
+    }
+}
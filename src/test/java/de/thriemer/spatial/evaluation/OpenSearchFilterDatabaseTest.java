@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.OpenSearchDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the bounding box prefilter and geo_polygon in filter context against the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OpenSearchFilterDatabaseTest extends AbstractDatabaseTest<OpenSearchDatabase> {
+    @Override
+    OpenSearchDatabase instantiateDatabase() {
+        OpenSearchDatabase database = new OpenSearchDatabase();
+        database.setSettings(settings("opensearch-query-strategy", "filter"));
+        return database;
+    }
+}
@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.OpenSearchDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the pages of one point in time, skipped pages are reached by their sort values, against the cursor of the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OpenSearchPitDatabaseTest extends AbstractDatabaseTest<OpenSearchDatabase> {
+    @Override
+    OpenSearchDatabase instantiateDatabase() {
+        OpenSearchDatabase database = new OpenSearchDatabase();
+        database.setSettings(settings("opensearch-pagination", "pit"));
+        return database;
+    }
+}
@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.OpenSearchDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the geo_shape query in filter context against the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OpenSearchShapeDatabaseTest extends AbstractDatabaseTest<OpenSearchDatabase> {
+    @Override
+    OpenSearchDatabase instantiateDatabase() {
+        OpenSearchDatabase database = new OpenSearchDatabase();
+        database.setSettings(settings("opensearch-query-strategy", "shape"));
+        return database;
+    }
+}
@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.PostGisDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the points decoded from ST_X and ST_Y against the text decoding of the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PostGisCoordinatesDatabaseTest extends AbstractDatabaseTest<PostGisDatabase> {
+    @Override
+    PostGisDatabase instantiateDatabase() {
+        PostGisDatabase database = new PostGisDatabase();
+        database.setSettings(settings("postgis-result-decoding", "coordinates"));
+        return database;
+    }
+}
@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.PostGisDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the keyset pages against the cursor of the reference, with prepared statements the seek keys, LIMIT and OFFSET are bound
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PostGisKeysetDatabaseTest extends AbstractDatabaseTest<PostGisDatabase> {
+    @Override
+    PostGisDatabase instantiateDatabase() {
+        PostGisDatabase database = new PostGisDatabase();
+        database.setSettings(settings("postgis-pagination", "keyset", "postgis-prepared-statements", ""));
+        return database;
+    }
+}
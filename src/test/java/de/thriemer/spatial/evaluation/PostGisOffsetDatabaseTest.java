@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.PostGisDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the OFFSET pages against the cursor of the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PostGisOffsetDatabaseTest extends AbstractDatabaseTest<PostGisDatabase> {
+    @Override
+    PostGisDatabase instantiateDatabase() {
+        PostGisDatabase database = new PostGisDatabase();
+        database.setSettings(settings("postgis-pagination", "offset"));
+        return database;
+    }
+}
@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.PostGisDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the queries pruned to the partitions of the covering cells against the unpartitioned reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PostGisPartitionedDatabaseTest extends AbstractDatabaseTest<PostGisDatabase> {
+    @Override
+    PostGisDatabase instantiateDatabase() {
+        PostGisDatabase database = new PostGisDatabase();
+        database.setSettings(settings("postgis-partitions", "16"));
+        return database;
+    }
+}
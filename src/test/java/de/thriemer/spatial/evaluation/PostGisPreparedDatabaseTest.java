@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.PostGisDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the prepared statements with WKB shapes against the plain queries of the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PostGisPreparedDatabaseTest extends AbstractDatabaseTest<PostGisDatabase> {
+    @Override
+    PostGisDatabase instantiateDatabase() {
+        PostGisDatabase database = new PostGisDatabase();
+        database.setSettings(settings("postgis-prepared-statements", ""));
+        return database;
+    }
+}
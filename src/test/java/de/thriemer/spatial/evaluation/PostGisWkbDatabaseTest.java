@@ -0,0 +1,15 @@
+package de.thriemer.spatial.evaluation;
+
+import de.thriemer.spatial.PostGisDatabase;
+import org.junit.jupiter.api.TestInstance;
+
+// the points decoded from binary WKB against the text decoding of the reference
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PostGisWkbDatabaseTest extends AbstractDatabaseTest<PostGisDatabase> {
+    @Override
+    PostGisDatabase instantiateDatabase() {
+        PostGisDatabase database = new PostGisDatabase();
+        database.setSettings(settings("postgis-result-decoding", "wkb"));
+        return database;
+    }
+}
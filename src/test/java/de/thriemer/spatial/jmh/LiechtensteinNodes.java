@@ -0,0 +1,50 @@
+package de.thriemer.spatial.jmh;
+
+import crosby.binary.osmosis.OsmosisReader;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// the nodes of the Liechtenstein PBF file, which is also used by the tests, as realistic input for the benchmarks
+final class LiechtensteinNodes {
+
+    private LiechtensteinNodes() {
+    }
+
+    static List<Node> read() {
+        List<Node> nodes = new ArrayList<>();
+        var reader = new OsmosisReader(new File("liechtenstein-latest.osm.pbf"));
+        reader.setSink(new Sink() {
+            @Override
+            public void process(EntityContainer entityContainer) {
+                if (entityContainer instanceof NodeContainer nodeContainer) {
+                    nodes.add(nodeContainer.getEntity());
+                }
+            }
+
+            @Override
+            public void initialize(Map<String, Object> map) {
+
+            }
+
+            @Override
+            public void complete() {
+
+            }
+
+            @Override
+            public void close() {
+
+            }
+        });
+        reader.run();
+        return nodes;
+    }
+
+}
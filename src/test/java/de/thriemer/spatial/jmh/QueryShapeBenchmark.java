@@ -0,0 +1,76 @@
+package de.thriemer.spatial.jmh;
+
+import de.thriemer.spatial.framework.Helper;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTWriter;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The client side cost of building a query shape and encoding it for the databases, per query.
+// The vertex counts are a subset of the polygon filter complexity scenario, the centers are Liechtenstein nodes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryShapeBenchmark {
+
+    private static final double RADIUS = 0.01;
+    private static final int SHAPES = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    int vertices;
+
+    List<Node> centers;
+    Geometry[] shapes;
+    int next;
+
+    // PostGisDatabase.convertToWKT
+    final WKTWriter wktWriter = new WKTWriter();
+    // the shapes of Aerospike and ADX
+    final GeoJsonWriter geoJsonWriter = new GeoJsonWriter();
+
+    @Setup
+    public void createShapes() {
+        List<Node> nodes = LiechtensteinNodes.read();
+        centers = nodes.subList(0, Math.min(SHAPES, nodes.size()));
+        shapes = new Geometry[centers.size()];
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = Helper.generateCircle(centers.get(i).getLongitude(), centers.get(i).getLatitude(), RADIUS, vertices);
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % shapes.length;
+        return next;
+    }
+
+    @Benchmark
+    public Geometry generateCircle() {
+        var center = centers.get(nextIndex());
+        return Helper.generateCircle(center.getLongitude(), center.getLatitude(), RADIUS, vertices);
+    }
+
+    @Benchmark
+    public String wktWriter() {
+        return wktWriter.write(shapes[nextIndex()]);
+    }
+
+    @Benchmark
+    public String geoJsonWriter() {
+        return geoJsonWriter.write(shapes[nextIndex()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(QueryShapeBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,90 @@
+package de.thriemer.spatial.jmh;
+
+import net.postgis.jdbc.PGgeometry;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.io.geojson.GeoJsonReader;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The client side cost of decoding the position of one result row, in the format every database returns it.
+// The positions are the Liechtenstein nodes, encoded the same way the adapters store them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultDecodingBenchmark {
+
+    // PostGIS returns the geometry column as hex encoded WKB
+    String[] postGisValues;
+    // Aerospike stores the position as GeoJSON
+    String[] aerospikeValues;
+    // OpenSearch returns the WKT string of OpenSearchDataPoint.from
+    String[] openSearchValues;
+    int next;
+
+    final GeoJsonReader geoJsonReader = new GeoJsonReader();
+    final WKTReader wktReader = new WKTReader();
+
+    @Setup
+    public void encodePositions() {
+        List<Node> nodes = LiechtensteinNodes.read();
+        GeometryFactory factory = new GeometryFactory();
+        WKBWriter wkbWriter = new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN);
+        GeoJsonWriter geoJsonWriter = new GeoJsonWriter();
+        postGisValues = new String[nodes.size()];
+        aerospikeValues = new String[nodes.size()];
+        openSearchValues = new String[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            var node = nodes.get(i);
+            Geometry point = factory.createPoint(new Coordinate(node.getLongitude(), node.getLatitude()));
+            postGisValues[i] = WKBWriter.toHex(wkbWriter.write(point));
+            aerospikeValues[i] = geoJsonWriter.write(point);
+            openSearchValues[i] = "POINT(" + node.getLongitude() + " " + node.getLatitude() + ")";
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % postGisValues.length;
+        return next;
+    }
+
+    // PostGisDatabase.convert
+    @Benchmark
+    public double pgGeometry() throws SQLException {
+        var point = new PGgeometry(postGisValues[nextIndex()]).getGeometry().getFirstPoint();
+        return point.getX() + point.getY();
+    }
+
+    // AerospikeDatabase.mapToPoint
+    @Benchmark
+    public Geometry geoJsonReader() throws ParseException {
+        return geoJsonReader.read(aerospikeValues[nextIndex()]);
+    }
+
+    // OpenSearchDataPoint.decode
+    @Benchmark
+    public Geometry wktReader() throws ParseException {
+        return wktReader.read(openSearchValues[nextIndex()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResultDecodingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,56 @@
+package de.thriemer.spatial.jmh;
+
+import de.thriemer.spatial.benchmark.TagEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Compares the tag encoding of all nodes of the Liechtenstein PBF file, the regex based encoding was used before the TagEncoder
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagEncoderBenchmark {
+
+    List<Collection<Tag>> nodeTags;
+
+    @Setup
+    public void loadTags() {
+        nodeTags = LiechtensteinNodes.read().stream().map(Node::getTags).toList();
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (var tags : nodeTags) {
+            blackhole.consume(tags.stream().map(Tag::toString).collect(Collectors.joining(" "))
+                    .replaceAll("\\|+", "-")
+                    .replaceAll(",+", " ")
+                    .replaceAll("\"+", "'")
+                    .replaceAll("\n+", ""));
+        }
+    }
+
+    @Benchmark
+    public void tagEncoder(Blackhole blackhole) {
+        TagEncoder encoder = new TagEncoder(TagEncoder.Escaping.ADX_CSV);
+        for (var tags : nodeTags) {
+            blackhole.consume(encoder.encode(tags));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TagEncoderBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}